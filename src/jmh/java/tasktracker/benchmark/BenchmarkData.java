@@ -0,0 +1,43 @@
+package tasktracker.benchmark;
+
+import tasktracker.model.Epic;
+import tasktracker.model.Progress;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+import tasktracker.service.TaskManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Генерация тестовой доски для бенчмарков: задачи идут без пересечений с шагом в SLOT,
+ * каждая занимает половину слота, так что между соседями остается свободное окно.
+ */
+final class BenchmarkData {
+    static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+    static final Duration SLOT = Duration.ofMinutes(10);
+    static final Duration DURATION = Duration.ofMinutes(5);
+
+    private BenchmarkData() {
+    }
+
+    static LocalDateTime slot(long index) {
+        return BASE.plus(SLOT.multipliedBy(index));
+    }
+
+    // size задач, из них примерно пятая часть - эпики с одной подзадачей
+    static void fill(TaskManager taskManager, int size) {
+        int slot = 0;
+        for (int i = 0; i < size; i++) {
+            if (i % 5 == 4) {
+                Epic epic = new Epic("Эпик " + i, "Описание " + i, Progress.NEW);
+                taskManager.addNewEpic(epic);
+                taskManager.addNewSubTask(new SubTask("Подзадача " + i, "Описание " + i,
+                        Progress.IN_PROGRESS, DURATION, slot(slot++), epic.getId()));
+            } else {
+                taskManager.addNewTask(new Task("Задача " + i, "Описание " + i,
+                        Progress.NEW, DURATION, slot(slot++)));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package tasktracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tasktracker.fileservice.FileBackedTaskManager;
+import tasktracker.fileservice.SnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полная запись снимка и загрузка FileBackedTaskManager на 1k/10k/100k задач в CSV и бинарном формате.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileStoreBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param({"CSV", "BINARY"})
+    private SnapshotFormat format;
+
+    private Path snapshot;
+    private FileBackedTaskManager taskManager;
+
+    @Setup
+    public void setUp() throws IOException {
+        snapshot = Files.createTempFile("kanban-bench", ".csv");
+        // режим журнала без автоматического сжатия, иначе заполнение стоит O(n^2)
+        taskManager = new FileBackedTaskManager(snapshot.toFile(), Integer.MAX_VALUE, format);
+        BenchmarkData.fill(taskManager, size);
+        taskManager.compact();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        taskManager.close();
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(Path.of(snapshot + ".journal"));
+    }
+
+    @Benchmark
+    public void save() {
+        taskManager.save();
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadFromFile() {
+        return FileBackedTaskManager.loadFromFile(new File(snapshot.toString()));
+    }
+}
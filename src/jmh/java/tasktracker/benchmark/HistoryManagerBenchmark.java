@@ -0,0 +1,65 @@
+package tasktracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tasktracker.history.HistoryManager;
+import tasktracker.model.Progress;
+import tasktracker.model.Task;
+import tasktracker.utils.Managers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение реализаций истории: связный список на узлах и параллельные массивы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryManagerBenchmark {
+    @Param({"LINKED", "ARRAY"})
+    private String implementation;
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private HistoryManager historyManager;
+    private Task[] tasks;
+    private int cursor = 0;
+
+    @Setup
+    public void setUp() {
+        historyManager = implementation.equals("ARRAY")
+                ? Managers.getArrayHistory(size)
+                : Managers.getDefaultHistory();
+        tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task(i + 1, "Задача " + i, "Описание " + i, Progress.NEW);
+            historyManager.add(tasks[i]);
+        }
+    }
+
+    // повторный просмотр: удаление из середины и перенос в конец
+    @Benchmark
+    public void add() {
+        historyManager.add(tasks[cursor]);
+        cursor = cursor + 1 == tasks.length ? 0 : cursor + 1;
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+}
@@ -0,0 +1,83 @@
+package tasktracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tasktracker.controller.HttpTaskServer;
+import tasktracker.model.Task;
+import tasktracker.service.TaskManager;
+import tasktracker.utils.Managers;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный цикл запроса к обработчикам HttpTaskServer через loopback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// как при запуске через HttpTaskServer.main
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HttpHandlerBenchmark {
+    private HttpTaskServer taskServer;
+    private HttpClient client;
+    private HttpRequest getAllTasks;
+    private HttpRequest getTaskById;
+    private HttpRequest getPrioritized;
+
+    @Setup
+    public void setUp() throws IOException {
+        TaskManager taskManager = Managers.getDefault();
+        BenchmarkData.fill(taskManager, 1000);
+        Task task = taskManager.getAllTasks().get(0);
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        taskServer = new HttpTaskServer(taskManager, port);
+        taskServer.start();
+
+        client = HttpClient.newHttpClient();
+        String base = "http://localhost:" + port;
+        getAllTasks = HttpRequest.newBuilder(URI.create(base + "/tasks")).GET().build();
+        getTaskById = HttpRequest.newBuilder(URI.create(base + "/tasks/" + task.getId())).GET().build();
+        getPrioritized = HttpRequest.newBuilder(URI.create(base + "/prioritized")).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        taskServer.stop();
+    }
+
+    @Benchmark
+    public String getAllTasks() throws IOException, InterruptedException {
+        return client.send(getAllTasks, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @Benchmark
+    public String getTaskById() throws IOException, InterruptedException {
+        return client.send(getTaskById, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @Benchmark
+    public String getPrioritizedTasks() throws IOException, InterruptedException {
+        return client.send(getPrioritized, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -0,0 +1,80 @@
+package tasktracker.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tasktracker.controller.HttpTaskServer;
+import tasktracker.model.Task;
+import tasktracker.service.TaskManager;
+import tasktracker.utils.Managers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация Gson в том виде, в каком ее использует HttpTaskServer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private Gson gson;
+    private Task task;
+    private List<Task> tasks;
+    private String taskJson;
+
+    @Setup
+    public void setUp() {
+        TaskManager taskManager = Managers.getDefault();
+        BenchmarkData.fill(taskManager, 1000);
+        tasks = taskManager.getAllTasks();
+        task = tasks.get(0);
+        gson = HttpTaskServer.getGson();
+        taskJson = gson.toJson(task);
+    }
+
+    @Benchmark
+    public Task parseTask() {
+        return gson.fromJson(taskJson, Task.class);
+    }
+
+    @Benchmark
+    public String writeTask() {
+        return gson.toJson(task);
+    }
+
+    @Benchmark
+    public String writeTaskList() {
+        return gson.toJson(tasks);
+    }
+
+    // потоковая запись списка, как в обработчиках списков
+    @Benchmark
+    public void streamTaskList() throws IOException {
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (Task item : tasks) {
+                gson.toJson(item, item.getClass(), writer);
+            }
+            writer.endArray();
+        }
+    }
+}
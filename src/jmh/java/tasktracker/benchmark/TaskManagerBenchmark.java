@@ -0,0 +1,101 @@
+package tasktracker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tasktracker.model.Progress;
+import tasktracker.model.Task;
+import tasktracker.service.TaskManager;
+import tasktracker.utils.Managers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Основные операции InMemoryTaskManager на доске из size задач.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private TaskManager taskManager;
+    private int[] taskIds;
+    private int cursor = 0;
+    private LocalDateTime freeWindow;
+    private LocalDateTime busyWindow;
+
+    @Setup
+    public void setUp() {
+        taskManager = Managers.getDefault();
+        BenchmarkData.fill(taskManager, size);
+        taskIds = taskManager.getAllTasks().stream().mapToInt(Task::getId).toArray();
+        // середина доски: свободное окно между соседними задачами и занятый слот
+        freeWindow = BenchmarkData.slot(size / 2).plus(BenchmarkData.DURATION);
+        busyWindow = BenchmarkData.slot(size / 2);
+    }
+
+    // вставка с проверкой пересечений и удаление, чтобы размер доски не менялся
+    @Benchmark
+    public Task addNewTaskWithOverlapCheck() {
+        Task task = new Task("Новая", "Описание", Progress.NEW, BenchmarkData.DURATION, freeWindow);
+        taskManager.addNewTask(task);
+        taskManager.deleteTaskById(task.getId());
+        return task;
+    }
+
+    @Benchmark
+    public boolean addNewTaskRejected() {
+        try {
+            taskManager.addNewTask(new Task("Новая", "Описание", Progress.NEW, BenchmarkData.DURATION, busyWindow));
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    // чтение по id вместе с обновлением истории просмотров
+    @Benchmark
+    public Task getTaskById() {
+        int id = taskIds[cursor];
+        cursor = cursor + 1 == taskIds.length ? 0 : cursor + 1;
+        return taskManager.getTaskById(id);
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return taskManager.getPrioritizedTasks();
+    }
+
+    // окно календаря из 100 слотов посреди доски
+    @Benchmark
+    public List<Task> getPrioritizedBetween() {
+        return taskManager.getPrioritizedBetween(busyWindow, BenchmarkData.slot(size / 2 + 100));
+    }
+
+    // частое слово вместе с редким: обходится только список редкого
+    @Benchmark
+    public List<Task> searchCommonAndRare() {
+        return taskManager.search("задача " + (size / 2 + 1), 50);
+    }
+
+    // префикс, под который попадает около сотни слов
+    @Benchmark
+    public List<Task> searchPrefix() {
+        return taskManager.search(String.valueOf(size / 1000 + 1), 50);
+    }
+}
@@ -1,89 +1,342 @@
 package tasktracker.controller;
 
+import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import tasktracker.fileservice.TaskType;
+import tasktracker.model.Progress;
+import tasktracker.model.Task;
 import tasktracker.service.TaskManager;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class BaseHttpHandler implements HttpHandler {
     private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+    // меньшие тела не сжимаются: заголовок gzip и затраты CPU съедают выигрыш
+    static final int GZIP_MIN_BYTES = 1024;
+    private static final int BUFFER_BYTES = 8192;
+    // формат дат в JSON и в параметрах запроса
+    protected static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     protected TaskManager taskManager;
 
     public BaseHttpHandler(TaskManager taskManager) {
         this.taskManager = taskManager;
     }
 
+    /**
+     * Путь разбирается один раз относительно контекста обработчика: /tasks - коллекция, /tasks/{id} - сущность.
+     * id читается посимвольно без регулярных выражений; нецифровой или слишком большой id дает 400,
+     * лишние сегменты пути - 404.
+     */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        switch (method) {
-            case "GET":
-                processGet(exchange);
-                break;
-            case "POST":
-                processPost(exchange);
-                break;
-            case "DELETE":
-                processDelete(exchange);
-                break;
-            default:
-                sendMethodNotAllowed(exchange, "Метод не поддерживается");
+        String path = exchange.getRequestURI().getPath();
+        String context = exchange.getHttpContext().getPath();
+        Integer id = null;
+        if (!path.equals(context)) {
+            int from = context.length() + 1;
+            if (path.length() <= from || !path.startsWith(context) || path.charAt(from - 1) != '/'
+                    || path.indexOf('/', from) >= 0) {
+                sendNotFound(exchange, "Некорректный запрос");
+                return;
+            }
+            int parsed = parseId(path, from);
+            if (parsed < 0) {
+                writeResponse(exchange, "Некорректный id: " + path.substring(from), 400);
+                return;
+            }
+            id = parsed;
+        }
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                if (id == null) {
+                    processGet(exchange);
+                } else {
+                    processGetById(exchange, id);
+                }
+            }
+            case "POST" -> processPost(exchange, id);
+            case "DELETE" -> {
+                if (id == null) {
+                    writeResponse(exchange, "Не указан id", 400);
+                } else {
+                    processDelete(exchange, id);
+                }
+            }
+            default -> sendMethodNotAllowed(exchange, "Метод не поддерживается");
         }
     }
 
+    // неотрицательное число из цифр path начиная с from, -1 - если есть другие символы или переполнение int
+    static int parseId(String path, int from) {
+        long value = 0;
+        for (int i = from; i < path.length(); i++) {
+            int digit = path.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
 
     protected void processGet(HttpExchange exchange) throws IOException {
         sendMethodNotAllowed(exchange, "Метод processGet в BaseHandler ???? ");
     }
 
-    protected void processPost(HttpExchange exchange) throws IOException {
+    protected void processGetById(HttpExchange exchange, int id) throws IOException {
+        sendNotFound(exchange, "Некорректный запрос");
+    }
+
+    // id - из пути /resource/{id}, null для запроса к коллекции
+    protected void processPost(HttpExchange exchange, Integer id) throws IOException {
         sendMethodNotAllowed(exchange, "Метод processPost в BaseHandler ???? ");
     }
 
-    protected void processDelete(HttpExchange exchange) throws IOException {
+    protected void processDelete(HttpExchange exchange, int id) throws IOException {
         sendMethodNotAllowed(exchange, "Метод processDelete в BaseHandler ???? ");
     }
 
+    /**
+     * Тело кодируется до отправки заголовков, поэтому ответ уходит с точным Content-Length
+     * (без chunked-кодирования, -1 для пустого тела) и соединение остается пригодным для keep-alive.
+     * Тела от GZIP_MIN_BYTES сжимаются, если клиент принимает gzip.
+     */
     protected static void writeResponse(HttpExchange exchange,
                                         String responseString,
                                         int responseCode) throws IOException {
         exchange.getResponseHeaders().add("Content-Type", "application/json; charset=" + DEFAULT_CHARSET);
-        try (OutputStream os = exchange.getResponseBody()) {
-            exchange.sendResponseHeaders(responseCode, 0);
-            os.write(responseString.getBytes(DEFAULT_CHARSET));
+        byte[] body = responseString.getBytes(DEFAULT_CHARSET);
+        if (body.length >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+            body = gzip(body);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        exchange.sendResponseHeaders(responseCode, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
         }
         exchange.close();
     }
 
+    // список пишется JSON-массивом прямо в тело ответа, без сборки промежуточной строки;
+    // длина заранее неизвестна, поэтому здесь остается chunked-кодирование
+    protected static void writeJsonList(HttpExchange exchange,
+                                        Collection<? extends Task> items,
+                                        int responseCode) throws IOException {
+        Gson gson = HttpTaskServer.getGson();
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=" + DEFAULT_CHARSET);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        boolean gzip = acceptsGzip(exchange);
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(responseCode, 0);
+        OutputStream body = gzip ? new GZIPOutputStream(exchange.getResponseBody(), BUFFER_BYTES)
+                : exchange.getResponseBody();
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(body, DEFAULT_CHARSET), BUFFER_BYTES))) {
+            writer.beginArray();
+            for (Task item : items) {
+                // по фактическому классу, чтобы у подзадач сохранялся epicId
+                gson.toJson(item, item.getClass(), writer);
+            }
+            writer.endArray();
+        }
+        exchange.close();
+    }
+
+    // Accept-Encoding: gzip или *, кроме явного отказа через q=0
+    static boolean acceptsGzip(HttpExchange exchange) {
+        List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+        if (headers == null) {
+            return false;
+        }
+        for (String header : headers) {
+            for (String token : header.split(",")) {
+                String[] parts = token.split(";");
+                String coding = parts[0].trim();
+                if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                    continue;
+                }
+                boolean refused = false;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            refused = Double.parseDouble(param.substring(2)) <= 0;
+                        } catch (NumberFormatException e) {
+                            refused = true;
+                        }
+                    }
+                }
+                if (!refused) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Pagination
+     */
+    @FunctionalInterface
+    protected interface IdPage {
+        List<? extends Task> get(Integer afterId, int limit);
+    }
+
+    // ?after=<id>&limit=<n>&status=<NEW|IN_PROGRESS|DONE>; без параметров отдается весь список, как раньше
+    protected void sendIdPage(HttpExchange exchange,
+                              TaskType type,
+                              Supplier<? extends Collection<? extends Task>> all,
+                              IdPage page) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        if (!params.containsKey("after") && !params.containsKey("limit") && !params.containsKey("status")) {
+            sendJsonList(exchange, all.get());
+            return;
+        }
+        List<? extends Task> items;
+        try {
+            String after = params.get("after");
+            Integer afterId = after == null ? null : Integer.valueOf(after);
+            int limit = limitParam(params);
+            String status = params.get("status");
+            items = status == null ? page.get(afterId, limit)
+                    : taskManager.getByStatus(type, Progress.valueOf(status.toUpperCase()), afterId, limit);
+        } catch (IllegalArgumentException e) {
+            writeResponse(exchange, "Некорректные параметры страницы: " + e.getMessage(), 400);
+            return;
+        }
+        sendJsonList(exchange, items);
+    }
+
+    // ?after=<startTime>&afterId=<id>&limit=<n>; курсор - startTime и id последней задачи предыдущей страницы.
+    // ?from=<startTime>&to=<startTime> - окно календаря: задачи, начинающиеся в [from, to)
+    protected void sendPrioritizedPage(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        if (params.isEmpty()) {
+            sendJsonList(exchange, taskManager.getPrioritizedTasks());
+            return;
+        }
+        List<Task> items;
+        if (params.containsKey("from") || params.containsKey("to")) {
+            try {
+                String from = params.get("from");
+                String to = params.get("to");
+                items = taskManager.getPrioritizedBetween(
+                        from == null ? null : LocalDateTime.parse(from, DATE_TIME_FORMATTER),
+                        to == null ? null : LocalDateTime.parse(to, DATE_TIME_FORMATTER));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                writeResponse(exchange, "Некорректные границы окна: " + e.getMessage(), 400);
+                return;
+            }
+            sendJsonList(exchange, items);
+            return;
+        }
+        try {
+            String after = params.get("after");
+            String afterId = params.get("afterId");
+            Task cursor = null;
+            if (after != null || afterId != null) {
+                // без afterId берутся задачи, начинающиеся строго позже after
+                cursor = new Task(afterId == null ? Integer.MAX_VALUE : Integer.parseInt(afterId), null, null,
+                        null, null, after == null ? null : LocalDateTime.parse(after, DATE_TIME_FORMATTER));
+            }
+            items = taskManager.getPrioritizedTasks(cursor, limitParam(params));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            writeResponse(exchange, "Некорректные параметры страницы: " + e.getMessage(), 400);
+            return;
+        }
+        sendJsonList(exchange, items);
+    }
+
+    private static int limitParam(Map<String, String> params) {
+        String limit = params.get("limit");
+        return limit == null ? Integer.MAX_VALUE : Integer.parseInt(limit);
+    }
+
+    // ?auto=true[&notBefore=<startTime>] - поставить задачу в первый свободный промежуток расписания.
+    // Возвращает нижнюю границу поиска или null, если автопланирование не запрошено;
+    // без notBefore поиск идет от startTime задачи, а без него - от текущего момента
+    protected static LocalDateTime autoScheduleFrom(HttpExchange exchange, Task task) {
+        Map<String, String> params = queryParams(exchange);
+        if (!Boolean.parseBoolean(params.get("auto"))) {
+            return null;
+        }
+        String notBefore = params.get("notBefore");
+        if (notBefore != null) {
+            return LocalDateTime.parse(notBefore, DATE_TIME_FORMATTER);
+        }
+        return task.getStartTime() != null ? task.getStartTime() : LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    protected static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, DEFAULT_CHARSET), URLDecoder.decode(value, DEFAULT_CHARSET));
+        }
+        return params;
+    }
+
     /**
      * Adapters
      */
     public static class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
-        private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
         @Override
         public void write(JsonWriter jsonWriter, LocalDateTime localDateTime) throws IOException {
             if (localDateTime == null) {
                 jsonWriter.nullValue();
             } else {
-                jsonWriter.value(FORMATTER.format(localDateTime));
+                jsonWriter.value(DATE_TIME_FORMATTER.format(localDateTime));
             }
         }
 
         @Override
         public LocalDateTime read(JsonReader jsonReader) throws IOException {
             String value = jsonReader.nextString();
-            return value == null || value.isBlank() ? null : LocalDateTime.parse(value, FORMATTER);
+            return value == null || value.isBlank() ? null : LocalDateTime.parse(value, DATE_TIME_FORMATTER);
         }
     }
 
@@ -115,6 +368,10 @@ public abstract class BaseHttpHandler implements HttpHandler {
         writeResponse(exchange, message, 200);
     }
 
+    protected void sendJsonList(HttpExchange exchange, Collection<? extends Task> items) throws IOException {
+        writeJsonList(exchange, items, 200);
+    }
+
     protected void sendNotFound(HttpExchange exchange, String message) throws IOException {
         writeResponse(exchange, message, 404);
     }
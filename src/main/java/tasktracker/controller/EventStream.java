@@ -0,0 +1,118 @@
+package tasktracker.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import tasktracker.service.TaskEvent;
+import tasktracker.service.TaskManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Один подписчик GET /events: события менеджера складываются в ограниченную очередь,
+ * а отдельный поток пишет их клиенту в формате Server-Sent Events.
+ * Менеджер только кладет событие в очередь и никогда не ждет клиента. Если клиент не успевает
+ * и очередь переполнена, подписка снимается, клиенту уходит событие overflow и соединение закрывается:
+ * пропуск событий оставил бы его копию данных несогласованной, поэтому он должен перечитать списки.
+ */
+final class EventStream implements Consumer<TaskEvent>, Runnable {
+    static final int BUFFER_EVENTS = 1024;
+    // комментарий-пинг раз в столько миллисекунд, чтобы заметить отключившегося клиента
+    static final long HEARTBEAT_MILLIS = 15_000;
+
+    private final TaskManager taskManager;
+    private final HttpExchange exchange;
+    private final BlockingQueue<TaskEvent> queue;
+    private volatile boolean overflowed;
+
+    EventStream(TaskManager taskManager, HttpExchange exchange, int capacity) {
+        this.taskManager = taskManager;
+        this.exchange = exchange;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void accept(TaskEvent event) {
+        if (!queue.offer(event)) {
+            overflowed = true;
+            taskManager.unsubscribe(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        Gson gson = HttpTaskServer.getGson();
+        List<TaskEvent> batch = new ArrayList<>();
+        // подписка раньше заголовков: получив ответ, клиент уже не пропустит ни одного изменения
+        taskManager.subscribe(this);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+        } catch (IOException e) {
+            taskManager.unsubscribe(this);
+            exchange.close();
+            return;
+        }
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192)) {
+            writer.write(": connected\n\n");
+            writer.flush();
+            while (!Thread.currentThread().isInterrupted()) {
+                TaskEvent first = queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    writer.write(": keep-alive\n\n");
+                } else {
+                    // все накопившиеся события уходят одной записью
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    for (TaskEvent event : batch) {
+                        write(writer, gson, event);
+                    }
+                    batch.clear();
+                }
+                if (overflowed) {
+                    writer.write("event: overflow\ndata: {}\n\n");
+                    break;
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // клиент закрыл соединение
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            taskManager.unsubscribe(this);
+            exchange.close();
+        }
+    }
+
+    private static void write(Writer writer, Gson gson, TaskEvent event) throws IOException {
+        JsonObject data = new JsonObject();
+        data.addProperty("type", event.getType().name());
+        data.addProperty("id", event.getId());
+        if (event.getTask() != null) {
+            // по фактическому классу, чтобы у подзадач сохранялся epicId
+            data.add("task", gson.toJsonTree(event.getTask(), event.getTask().getClass()));
+        }
+        writer.write("id: ");
+        writer.write(Long.toString(event.getSequence()));
+        writer.write("\nevent: ");
+        writer.write(event.getKind().name().toLowerCase(Locale.ROOT));
+        writer.write("\ndata: ");
+        // компактный JSON без переводов строк, поэтому хватает одной строки data
+        gson.toJson(data, writer);
+        writer.write("\n\n");
+    }
+}
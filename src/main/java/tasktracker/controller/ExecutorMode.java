@@ -0,0 +1,10 @@
+package tasktracker.controller;
+
+public enum ExecutorMode {
+    // все запросы обрабатывает единственный поток-диспетчер HttpServer
+    DISPATCHER,
+    // фиксированный пул потоков
+    FIXED,
+    // отдельный виртуальный поток на каждый запрос (Java 21+); на более старой JVM - как FIXED
+    VIRTUAL
+}
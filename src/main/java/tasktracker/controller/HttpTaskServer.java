@@ -2,13 +2,21 @@ package tasktracker.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import tasktracker.exeption.NotFoundException;
+import tasktracker.fileservice.CsvSerializer;
+import tasktracker.fileservice.TaskType;
 import tasktracker.fileservice.exception.ManagerSaveException;
 import tasktracker.model.Epic;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
+import tasktracker.service.Operation;
 import tasktracker.service.TaskManager;
 import tasktracker.utils.Managers;
 
@@ -17,36 +25,125 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
-    private static final int PORT = 8081;
+    public static final int DEFAULT_PORT = 8081;
+    public static final int DEFAULT_BACKLOG = 0;
+    // Gson потокобезопасен, поэтому один настроенный экземпляр разделяют все обработчики
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Duration.class, new BaseHttpHandler.DurationAdapter())
+            .registerTypeAdapter(LocalDateTime.class, new BaseHttpHandler.LocalDateTimeAdapter())
+            .create();
+
     private final HttpServer server;
+    private final ExecutorService executor;
+    private final int port;
+    private final EventsHttpHandler eventsHandler;
 
     public HttpTaskServer(TaskManager taskManager) throws IOException {
-        server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        this(taskManager, DEFAULT_PORT);
+    }
+
+    public HttpTaskServer(TaskManager taskManager, int port) throws IOException {
+        this(taskManager, port, DEFAULT_BACKLOG, ExecutorMode.DISPATCHER, 0);
+    }
+
+    /**
+     * @param backlog  длина очереди входящих соединений, 0 - значение по умолчанию системы
+     * @param threads  размер пула для режима FIXED, 0 - по числу процессоров
+     */
+    public HttpTaskServer(TaskManager taskManager, int port, int backlog,
+                          ExecutorMode executorMode, int threads) throws IOException {
+        this.port = port;
+        server = HttpServer.create(new InetSocketAddress(port), backlog);
+        executor = createExecutor(executorMode, threads);
+        server.setExecutor(executor);
         server.createContext("/tasks", new TaskHttpHandler(taskManager));
         server.createContext("/epics", new EpicHttpHandler(taskManager));
         server.createContext("/subtasks", new SubTaskHttpHandler(taskManager));
         server.createContext("/history", new HistoryHttpHandler(taskManager));
         server.createContext("/prioritized", new PrioritizedHttpHandler(taskManager));
+        server.createContext("/batch", new BatchHttpHandler(taskManager));
+        server.createContext("/search", new SearchHttpHandler(taskManager));
+        eventsHandler = new EventsHttpHandler(taskManager);
+        server.createContext("/events", eventsHandler);
     }
 
     public void start() {
         server.start();
-        System.out.println("HTTP-сервер запущен на " + PORT + " порту! \n");
+        System.out.println("HTTP-сервер запущен на " + port + " порту! \n");
     }
 
     public void stop() {
+        eventsHandler.close();
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         System.out.println("\n HTTP-сервер остановлен");
     }
 
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Настройки читаются из системных свойств:
+     * -Dkanban.port=8081 -Dkanban.backlog=0 -Dkanban.executor=FIXED|VIRTUAL|DISPATCHER -Dkanban.threads=0
+     */
     public static void main(String[] args) throws ManagerSaveException, IOException {
-        TaskManager taskManager = Managers.getDefault();
-        HttpTaskServer server = new HttpTaskServer(taskManager);
+        // ответ фиксированной длины уходит двумя записями (заголовки и тело); без TCP_NODELAY
+        // Nagle придерживает вторую до задержанного ACK клиента, и каждый keep-alive запрос ждет ~40 мс.
+        // Свойство общее для всех HttpServer в JVM и читается при создании первого из них, поэтому
+        // ставится только при запуске сервера отдельным процессом; явное значение из командной строки сохраняется
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+        int port = Integer.getInteger("kanban.port", DEFAULT_PORT);
+        int backlog = Integer.getInteger("kanban.backlog", DEFAULT_BACKLOG);
+        int threads = Integer.getInteger("kanban.threads", 0);
+        ExecutorMode mode = ExecutorMode.valueOf(
+                System.getProperty("kanban.executor", ExecutorMode.DISPATCHER.name()).toUpperCase());
+        // обработка в несколько потоков требует потокобезопасного менеджера
+        TaskManager taskManager = mode == ExecutorMode.DISPATCHER ? Managers.getDefault() : Managers.getConcurrent();
+        HttpTaskServer server = new HttpTaskServer(taskManager, port, backlog, mode, threads);
         server.start();
     }
 
+    private static ExecutorService createExecutor(ExecutorMode mode, int threads) {
+        return switch (mode) {
+            case DISPATCHER -> null;
+            case FIXED -> Executors.newFixedThreadPool(
+                    threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            case VIRTUAL -> newVirtualThreadExecutor(threads);
+        };
+    }
+
+    // проект собирается и на Java 17, поэтому фабрика виртуальных потоков ищется через reflection;
+    // до Java 21 ее нет, и режим VIRTUAL молча работает как FIXED с тем же threads
+    private static ExecutorService newVirtualThreadExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return createExecutor(ExecutorMode.FIXED, threads);
+        }
+    }
+
     /**
      * Task
      */
@@ -57,34 +154,21 @@ public class HttpTaskServer {
 
         @Override
         protected void processGet(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (path.equals("/tasks")) {
-                String response = taskManager.getAllTasks().toString();
-                sendSuccessResponse(exchange, response);
-            } else if (path.matches("/tasks/\\d+")) {
-                processGetTaskById(exchange, path);
-            } else {
-                sendNotFound(exchange, "Некорректный запрос");
-            }
+            sendIdPage(exchange, TaskType.TASK, taskManager::getAllTasks, taskManager::getTasks);
         }
 
-        private void processGetTaskById(HttpExchange exchange, String path) throws IOException {
-            int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
+        @Override
+        protected void processGetById(HttpExchange exchange, int id) throws IOException {
             try {
                 Task task = taskManager.getTaskById(id);
-                sendSuccessResponse(exchange, task.toString());
+                sendSuccessResponse(exchange, CsvSerializer.toLine(task));
             } catch (NotFoundException e) {
                 sendNotFound(exchange, e.getMessage());
             }
         }
 
         @Override
-        protected void processPost(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (!path.equals("/tasks") && !path.matches("/tasks/\\d+")) {
-                sendNotFound(exchange, "Некорректный запрос");
-                return;
-            }
+        protected void processPost(HttpExchange exchange, Integer id) throws IOException {
             String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             if (body.isBlank()) {
                 writeResponse(exchange, "Описание задачи не может быть пустым", 400);
@@ -98,7 +182,20 @@ public class HttpTaskServer {
                 writeResponse(exchange, "Некорректные данные: поля не должны быть null", 400);
                 return;
             }
+            LocalDateTime notBefore;
+            try {
+                notBefore = autoScheduleFrom(exchange, task);
+            } catch (DateTimeParseException e) {
+                writeResponse(exchange, "Некорректный notBefore: " + e.getMessage(), 400);
+                return;
+            }
             try {
+                if (notBefore != null) {
+                    // в ответе задача с выданными id и startTime
+                    taskManager.scheduleNewTask(task, notBefore);
+                    writeResponse(exchange, gson.toJson(task), 201);
+                    return;
+                }
                 taskManager.addNewTask(task);
                 writeResponse(exchange, "Задача добавлена", 201);
             } catch (NotFoundException e) {
@@ -109,9 +206,7 @@ public class HttpTaskServer {
         }
 
         @Override
-        protected void processDelete(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
+        protected void processDelete(HttpExchange exchange, int id) throws IOException {
             try {
                 taskManager.deleteTaskById(id);
                 sendSuccessResponse(exchange, "Задача с id = " + id + " удалена");
@@ -131,34 +226,21 @@ public class HttpTaskServer {
 
         @Override
         protected void processGet(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (path.equals("/epics")) {
-                String response = taskManager.getAllEpics().toString();
-                sendSuccessResponse(exchange, response);
-            } else if (path.matches("/epics/\\d+")) {
-                processGetEpicById(exchange, path);
-            } else {
-                sendNotFound(exchange, "Некорректный запрос");
-            }
+            sendIdPage(exchange, TaskType.EPIC, taskManager::getAllEpics, taskManager::getEpics);
         }
 
-        private void processGetEpicById(HttpExchange exchange, String path) throws IOException {
-            int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
+        @Override
+        protected void processGetById(HttpExchange exchange, int id) throws IOException {
             try {
                 Epic epic = taskManager.getEpicById(id);
-                sendSuccessResponse(exchange, epic.toString());
+                sendSuccessResponse(exchange, CsvSerializer.toLine(epic));
             } catch (NotFoundException e) {
                 sendNotFound(exchange, e.getMessage());
             }
         }
 
         @Override
-        protected void processPost(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (!path.equals("/epics") && !path.matches("/epics/\\d+")) {
-                sendNotFound(exchange, "Некорректный запрос");
-                return;
-            }
+        protected void processPost(HttpExchange exchange, Integer id) throws IOException {
             String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             if (body.isBlank()) {
                 writeResponse(exchange, "Описание задачи не может быть пустым", 400);
@@ -183,9 +265,7 @@ public class HttpTaskServer {
         }
 
         @Override
-        protected void processDelete(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
+        protected void processDelete(HttpExchange exchange, int id) throws IOException {
             try {
                 taskManager.deleteEpicById(id);
                 sendSuccessResponse(exchange, "Эпик с id = " + id + " удален");
@@ -205,24 +285,11 @@ public class HttpTaskServer {
 
         @Override
         protected void processGet(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (path.equals("/subtasks")) {
-                String response = taskManager.getAllSubTasks().toString();
-                sendSuccessResponse(exchange, response);
-            } else if (path.matches("/subtasks/\\d+")) {
-                processGetSubtaskById(exchange, path);
-            } else {
-                sendNotFound(exchange, "Некорректный запрос");
-            }
+            sendIdPage(exchange, TaskType.SUBTASK, taskManager::getAllSubTasks, taskManager::getSubTasks);
         }
 
         @Override
-        protected void processPost(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (!path.equals("/subtasks") && !path.matches("/subtasks/\\d+")) {
-                sendNotFound(exchange, "Некорректный запрос");
-                return;
-            }
+        protected void processPost(HttpExchange exchange, Integer id) throws IOException {
             String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             if (body.isBlank()) {
                 writeResponse(exchange, "Описание задачи не может быть пустым", 400);
@@ -235,7 +302,19 @@ public class HttpTaskServer {
                 return;
             }
 
+            LocalDateTime notBefore;
             try {
+                notBefore = autoScheduleFrom(exchange, subTask);
+            } catch (DateTimeParseException e) {
+                writeResponse(exchange, "Некорректный notBefore: " + e.getMessage(), 400);
+                return;
+            }
+            try {
+                if (notBefore != null) {
+                    taskManager.scheduleNewSubTask(subTask, notBefore);
+                    writeResponse(exchange, gson.toJson(subTask), 201);
+                    return;
+                }
                 taskManager.addNewSubTask(subTask);
                 writeResponse(exchange, "Подзадача добавлена", 201);
             } catch (NotFoundException e) {
@@ -245,20 +324,18 @@ public class HttpTaskServer {
             }
         }
 
-        private void processGetSubtaskById(HttpExchange exchange, String path) throws IOException {
-            int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
+        @Override
+        protected void processGetById(HttpExchange exchange, int id) throws IOException {
             try {
                 SubTask subTask = taskManager.getSubTaskById(id);
-                sendSuccessResponse(exchange, subTask.toString());
+                sendSuccessResponse(exchange, CsvSerializer.toLine(subTask));
             } catch (NotFoundException e) {
                 sendNotFound(exchange, e.getMessage());
             }
         }
 
         @Override
-        protected void processDelete(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
+        protected void processDelete(HttpExchange exchange, int id) throws IOException {
             try {
                 taskManager.deleteSubTaskById(id);
                 sendSuccessResponse(exchange, "Подзадача с id = " + id + " удалена");
@@ -278,13 +355,7 @@ public class HttpTaskServer {
 
         @Override
         protected void processGet(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (path.equals("/history")) {
-                String response = taskManager.getHistory().toString();
-                sendSuccessResponse(exchange, response);
-            } else {
-                sendNotFound(exchange, "Некорректный запрос");
-            }
+            sendJsonList(exchange, taskManager.getHistory());
         }
     }
 
@@ -298,21 +369,150 @@ public class HttpTaskServer {
 
         @Override
         protected void processGet(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (path.equals("/prioritized")) {
-                String response = taskManager.getPrioritizedTasks().toString();
-                sendSuccessResponse(exchange, response);
-            } else {
+            sendPrioritizedPage(exchange);
+        }
+    }
+
+    /**
+     * Batch
+     */
+    static class BatchHttpHandler extends BaseHttpHandler {
+        public BatchHttpHandler(TaskManager taskManager) {
+            super(taskManager);
+        }
+
+        // [{"op":"create|update|delete","type":"task|epic|subtask","task":{...},"id":1}, ...]
+        @Override
+        protected void processPost(HttpExchange exchange, Integer id) throws IOException {
+            if (id != null) {
                 sendNotFound(exchange, "Некорректный запрос");
+                return;
+            }
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            List<Operation> operations;
+            try {
+                operations = parseOperations(body);
+            } catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+                writeResponse(exchange, "Некорректный пакет: " + e.getMessage(), 400);
+                return;
+            }
+            try {
+                List<Integer> ids = taskManager.applyBatch(operations);
+                sendSuccessResponse(exchange, getGson().toJson(ids));
+            } catch (NotFoundException e) {
+                sendNotFound(exchange, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendHasInteractions(exchange, e.getMessage());
+            }
+        }
+
+        private static List<Operation> parseOperations(String body) {
+            JsonArray array = JsonParser.parseString(body).getAsJsonArray();
+            List<Operation> operations = new ArrayList<>(array.size());
+            for (JsonElement element : array) {
+                JsonObject object = element.getAsJsonObject();
+                Operation.Kind kind = Operation.Kind.valueOf(field(object, "op").toUpperCase());
+                TaskType type = TaskType.valueOf(field(object, "type").toUpperCase());
+                if (kind == Operation.Kind.DELETE) {
+                    operations.add(Operation.delete(type, Integer.valueOf(field(object, "id"))));
+                    continue;
+                }
+                Task task = getGson().fromJson(object.get("task"), switch (type) {
+                    case TASK -> Task.class;
+                    case EPIC -> Epic.class;
+                    case SUBTASK -> SubTask.class;
+                });
+                if (task == null || task.getName() == null || task.getDescription() == null
+                        || task.getStatus() == null) {
+                    throw new IllegalArgumentException("поля задачи не должны быть null");
+                }
+                if (task instanceof SubTask subTask && subTask.getEpicId() == null) {
+                    throw new IllegalArgumentException("epicId должен присутствовать");
+                }
+                if (kind == Operation.Kind.UPDATE && task.getId() == null) {
+                    throw new IllegalArgumentException("для обновления нужен id");
+                }
+                operations.add(kind == Operation.Kind.CREATE ? Operation.create(task) : Operation.update(task));
+            }
+            return operations;
+        }
+
+        private static String field(JsonObject object, String name) {
+            JsonElement value = object.get(name);
+            if (value == null || value.isJsonNull()) {
+                throw new IllegalArgumentException("нет поля " + name);
+            }
+            return value.getAsString();
+        }
+    }
+
+    /**
+     * Search
+     */
+    static class SearchHttpHandler extends BaseHttpHandler {
+        // без limit отдается не больше стольких совпадений, чтобы короткий префикс не выгружал все задачи
+        private static final int DEFAULT_LIMIT = 50;
+
+        public SearchHttpHandler(TaskManager taskManager) {
+            super(taskManager);
+        }
+
+        // ?q=<слова>&limit=<n>
+        @Override
+        protected void processGet(HttpExchange exchange) throws IOException {
+            Map<String, String> params = queryParams(exchange);
+            String query = params.get("q");
+            if (query == null || query.isBlank()) {
+                writeResponse(exchange, "Параметр q не может быть пустым", 400);
+                return;
+            }
+            List<Task> found;
+            try {
+                String limit = params.get("limit");
+                found = taskManager.search(query, limit == null ? DEFAULT_LIMIT : Integer.parseInt(limit));
+            } catch (IllegalArgumentException e) {
+                writeResponse(exchange, "Некорректные параметры поиска: " + e.getMessage(), 400);
+                return;
+            }
+            sendJsonList(exchange, found);
+        }
+    }
+
+    /**
+     * Events
+     */
+    static class EventsHttpHandler extends BaseHttpHandler {
+        // у каждого подписчика свой поток записи, поэтому их число ограничено
+        private static final int MAX_SUBSCRIBERS = 256;
+
+        private final ExecutorService streams = new ThreadPoolExecutor(0, MAX_SUBSCRIBERS,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "sse-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        public EventsHttpHandler(TaskManager taskManager) {
+            super(taskManager);
+        }
+
+        // обработчик сразу возвращается, поток записи продолжает ответ, пока клиент не отключится
+        @Override
+        protected void processGet(HttpExchange exchange) throws IOException {
+            try {
+                streams.execute(new EventStream(taskManager, exchange, EventStream.BUFFER_EVENTS));
+            } catch (RejectedExecutionException e) {
+                writeResponse(exchange, "Слишком много подписчиков", 503);
             }
         }
+
+        // прерывает потоки записи, их подписки снимаются, соединения закрываются
+        void close() {
+            streams.shutdownNow();
+        }
     }
 
     public static Gson getGson() {
-        return new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(Duration.class, new BaseHttpHandler.DurationAdapter())
-                .registerTypeAdapter(LocalDateTime.class, new BaseHttpHandler.LocalDateTimeAdapter())
-                .create();
+        return GSON;
     }
 }
@@ -0,0 +1,211 @@
+package tasktracker.fileservice;
+
+import tasktracker.fileservice.exception.ManagerSaveException;
+import tasktracker.model.Epic;
+import tasktracker.model.Progress;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Бинарный снимок задач.
+ * Заголовок: магическое число KNBN, версия формата (short), число записей (int).
+ * Запись: тип (byte), id (int), статус (byte, -1 для null), name и description (длина int + UTF-8, -1 для null),
+ * duration в наносекундах (long), startTime как epoch-second UTC (long) + наносекунды (int),
+ * у подзадачи в конце epicId (int). Отсутствующие duration и startTime пишутся как Long.MIN_VALUE.
+ * Коды типа и статуса - порядковые номера TaskType и Progress, поэтому их порядок - часть формата.
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x4B4E424E;
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Integer.BYTES;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final long ABSENT = Long.MIN_VALUE;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Progress[] STATUSES = Progress.values();
+
+    private BinarySnapshot() {
+    }
+
+    // true, если файл начинается с магического числа бинарного снимка
+    static boolean isBinary(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(Integer.BYTES);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // дочитываем заголовок
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // пишет во временный файл и атомарно подменяет снимок, чтобы сбой не оставил его обрезанным
+    static void write(Path path, Collection<? extends Task> tasks, Collection<? extends Epic> epics,
+                      Collection<? extends SubTask> subTasks) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC).putShort(VERSION).putInt(tasks.size() + epics.size() + subTasks.size());
+            for (Task task : tasks) {
+                buffer = writeRecord(channel, buffer, TaskType.TASK, task);
+            }
+            for (Epic epic : epics) {
+                buffer = writeRecord(channel, buffer, TaskType.EPIC, epic);
+            }
+            for (SubTask subTask : subTasks) {
+                buffer = writeRecord(channel, buffer, TaskType.SUBTASK, subTask);
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи снимка: " + path);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при замене снимка: " + path);
+        }
+    }
+
+    // файл отображается в память, а не копируется в кучу: пиковое потребление - только сами задачи
+    static void read(Path path, Consumer<Task> sink) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Снимок слишком велик: " + path);
+            }
+            decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), sink, path);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении снимка: " + path);
+        }
+    }
+
+    static void decode(ByteBuffer buffer, Consumer<Task> sink, Path path) {
+        try {
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new ManagerSaveException("Файл не является бинарным снимком: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new ManagerSaveException("Неподдерживаемая версия снимка " + version + ": " + path);
+            }
+            int count = buffer.getInt();
+            byte[][] scratch = {new byte[256]};
+            for (int i = 0; i < count; i++) {
+                sink.accept(readRecord(buffer, scratch));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ManagerSaveException("Снимок поврежден или обрезан: " + path);
+        }
+    }
+
+    private static ByteBuffer writeRecord(FileChannel channel, ByteBuffer buffer, TaskType type, Task task)
+            throws IOException {
+        byte[] name = bytes(task.getName());
+        byte[] description = bytes(task.getDescription());
+        int size = 1 + Integer.BYTES + 1
+                + Integer.BYTES + (name == null ? 0 : name.length)
+                + Integer.BYTES + (description == null ? 0 : description.length)
+                + Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+        if (buffer.remaining() < size) {
+            drain(channel, buffer);
+            if (buffer.capacity() < size) {
+                // запись длиннее буфера - для нее выделяется отдельный
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+        buffer.put((byte) type.ordinal());
+        buffer.putInt(task.getId());
+        buffer.put(task.getStatus() == null ? -1 : (byte) task.getStatus().ordinal());
+        putBytes(buffer, name);
+        putBytes(buffer, description);
+        Duration duration = task.getDuration();
+        buffer.putLong(duration == null ? ABSENT : duration.toNanos());
+        LocalDateTime startTime = task.getStartTime();
+        if (startTime == null) {
+            buffer.putLong(ABSENT);
+        } else {
+            buffer.putLong(startTime.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(startTime.getNano());
+        }
+        if (type == TaskType.SUBTASK) {
+            buffer.putInt(((SubTask) task).getEpicId());
+        }
+        return buffer;
+    }
+
+    private static Task readRecord(ByteBuffer buffer, byte[][] scratch) {
+        TaskType type = TYPES[buffer.get()];
+        int id = buffer.getInt();
+        byte statusCode = buffer.get();
+        Progress status = statusCode < 0 ? null : STATUSES[statusCode];
+        String name = getString(buffer, scratch);
+        String description = getString(buffer, scratch);
+        long nanos = buffer.getLong();
+        Duration duration = nanos == ABSENT ? null : Duration.ofNanos(nanos);
+        long seconds = buffer.getLong();
+        LocalDateTime startTime = seconds == ABSENT ? null
+                : LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+        return switch (type) {
+            case TASK -> new Task(id, name, description, status, duration, startTime);
+            case EPIC -> new Epic(id, name, description, status, duration, startTime);
+            case SUBTASK -> new SubTask(id, name, description, status, duration, startTime, buffer.getInt());
+        };
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    // байты строки копируются в переиспользуемый буфер scratch[0], поэтому на строку создается только String
+    private static String getString(ByteBuffer buffer, byte[][] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        if (scratch[0].length < length) {
+            scratch[0] = new byte[Math.max(length, scratch[0].length * 2)];
+        }
+        buffer.get(scratch[0], 0, length);
+        return new String(scratch[0], 0, length, StandardCharsets.UTF_8);
+    }
+}
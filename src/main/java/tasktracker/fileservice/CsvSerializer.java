@@ -0,0 +1,186 @@
+package tasktracker.fileservice;
+
+import tasktracker.model.Epic;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV-строка задачи без String.format: поля дописываются прямо в StringBuilder.
+ * Формат: id,TYPE,name,description,status,duration,startTime[,epicId] и перевод строки.
+ * В name и description обратный слеш, запятая и переводы строк экранируются обратным слешем,
+ * поэтому запятая в тексте не сдвигает поля, а запись всегда занимает одну строку файла.
+ * Другие последовательности с обратным слешем читаются как есть.
+ */
+public final class CsvSerializer {
+    private final StringBuilder line = new StringBuilder(128);
+    private char[] chars = new char[128];
+
+    // пишет строку задачи в writer через переиспользуемые буферы, не создавая String
+    public void write(Writer writer, Task task) throws IOException {
+        line.setLength(0);
+        append(line, task);
+        if (chars.length < line.length()) {
+            chars = new char[Math.max(line.length(), chars.length * 2)];
+        }
+        line.getChars(0, line.length(), chars, 0);
+        writer.write(chars, 0, line.length());
+    }
+
+    public static String toLine(Task task) {
+        return append(new StringBuilder(128), task).toString();
+    }
+
+    public static StringBuilder append(StringBuilder sb, Task task) {
+        TaskType type = task instanceof Epic ? TaskType.EPIC
+                : task instanceof SubTask ? TaskType.SUBTASK : TaskType.TASK;
+        sb.append(task.getId()).append(',').append(type.name()).append(',');
+        appendEscaped(sb, task.getName());
+        sb.append(',');
+        appendEscaped(sb, task.getDescription());
+        sb.append(',').append(task.getStatus() == null ? "null" : task.getStatus().name()).append(',');
+        appendDuration(sb, task.getDuration());
+        sb.append(',');
+        appendDateTime(sb, task.getStartTime());
+        if (type == TaskType.SUBTASK) {
+            sb.append(',').append(((SubTask) task).getEpicId());
+        }
+        return sb.append('\n');
+    }
+
+    // как String.split(","): экранированные запятые не делят поля, пустые поля в конце отбрасываются
+    static String[] split(String line) {
+        List<String> fields = new ArrayList<>(8);
+        int start = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ',') {
+                fields.add(line.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (fields.isEmpty()) {
+            return new String[]{line};
+        }
+        fields.add(line.substring(start));
+        int size = fields.size();
+        while (size > 0 && fields.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return fields.subList(0, size).toArray(new String[0]);
+    }
+
+    static String unescape(String value) {
+        int slash = value.indexOf('\\');
+        if (slash < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length()).append(value, 0, slash);
+        for (int i = slash; i < value.length(); i++) {
+            char c = value.charAt(i);
+            char next = c == '\\' && i + 1 < value.length() ? value.charAt(i + 1) : 0;
+            switch (next) {
+                case ',', '\\' -> sb.append(next);
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                default -> {
+                    sb.append(c);
+                    continue;
+                }
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case ',' -> sb.append("\\,");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    // совпадает с Duration.toString; отрицательные и дробные значения отдаются ему же
+    private static void appendDuration(StringBuilder sb, Duration duration) {
+        if (duration == null || duration.isNegative() || duration.getNano() != 0) {
+            sb.append(duration);
+            return;
+        }
+        long seconds = duration.getSeconds();
+        long hours = seconds / 3600;
+        int minutes = (int) (seconds % 3600 / 60);
+        int secs = (int) (seconds % 60);
+        sb.append("PT");
+        if (hours != 0) {
+            sb.append(hours).append('H');
+        }
+        if (minutes != 0) {
+            sb.append(minutes).append('M');
+        }
+        if (secs != 0 || hours == 0 && minutes == 0) {
+            sb.append(secs).append('S');
+        }
+    }
+
+    // совпадает с LocalDateTime.toString; годы вне 0..9999 отдаются ему же
+    private static void appendDateTime(StringBuilder sb, LocalDateTime dateTime) {
+        if (dateTime == null || dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+            sb.append(dateTime);
+            return;
+        }
+        appendPadded(sb, dateTime.getYear(), 4);
+        sb.append('-');
+        appendPadded(sb, dateTime.getMonthValue(), 2);
+        sb.append('-');
+        appendPadded(sb, dateTime.getDayOfMonth(), 2);
+        sb.append('T');
+        appendPadded(sb, dateTime.getHour(), 2);
+        sb.append(':');
+        appendPadded(sb, dateTime.getMinute(), 2);
+        int second = dateTime.getSecond();
+        int nano = dateTime.getNano();
+        if (second == 0 && nano == 0) {
+            return;
+        }
+        sb.append(':');
+        appendPadded(sb, second, 2);
+        if (nano == 0) {
+            return;
+        }
+        sb.append('.');
+        if (nano % 1_000_000 == 0) {
+            appendPadded(sb, nano / 1_000_000, 3);
+        } else if (nano % 1000 == 0) {
+            appendPadded(sb, nano / 1000, 6);
+        } else {
+            appendPadded(sb, nano, 9);
+        }
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                sb.append('0');
+            }
+        }
+        sb.append(value);
+    }
+}
@@ -7,96 +7,362 @@ import tasktracker.model.Progress;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
 import tasktracker.service.InMemoryTaskManager;
+import tasktracker.service.Operation;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DELETE";
+    private static final String CLEAR = "CLEAR";
+    private static final String CSV_HEADER = "id,type,name,status,description,duration,localDateTime,epic\n";
+
     private final File file;
+    private final SnapshotFormat format;
+    private final Path journal;
+    private final int compactEvery;
+    private final GroupCommitJournal groupCommit;
+    private final boolean awaitDurable;
+    private int journalSize = 0;
 
     public FileBackedTaskManager(File file) {
+        this(file, 0);
+    }
+
+    /**
+     * @param compactEvery 0 - снимок переписывается целиком на каждое изменение;
+     *                     больше 0 - изменения дописываются в журнал file.journal,
+     *                     а снимок пересобирается после указанного числа записей журнала
+     */
+    public FileBackedTaskManager(File file, int compactEvery) {
+        this(file, compactEvery, SnapshotFormat.CSV);
+    }
+
+    /**
+     * @param format формат, в котором save() пишет снимок; журнал всегда остается текстовым
+     */
+    public FileBackedTaskManager(File file, int compactEvery, SnapshotFormat format) {
+        this(file, format, compactEvery, null, false);
+    }
+
+    private FileBackedTaskManager(File file, SnapshotFormat format, int compactEvery,
+                                  GroupCommitJournal groupCommit, boolean awaitDurable) {
         super(new InMemoryHistoryManager());
         this.file = file;
+        this.format = format;
+        this.journal = journalOf(file);
+        this.compactEvery = compactEvery;
+        this.groupCommit = groupCommit;
+        this.awaitDurable = awaitDurable;
+    }
 
+    /**
+     * Восстанавливает менеджер из файла и включает журнал с групповой фиксацией:
+     * изменения, пришедшие в пределах window или до maxBatch записей, сбрасываются
+     * одной записью и одним fsync.
+     * Монитор менеджера упорядочивает только изменения и постановку их записей в журнал, чтобы пакеты
+     * собирались из нескольких потоков. Чтение и история не синхронизированы, поэтому менеджер
+     * не потокобезопасен: параллельные чтения и изменения из разных потоков допустимы только
+     * у менеджера в памяти Managers.getConcurrent().
+     *
+     * @param awaitDurable true - вызывающий поток ждет, пока его пакет не окажется на диске; если запись
+     *                     не удалась, он получает ManagerSaveException, но изменение в памяти остается
+     */
+    public static FileBackedTaskManager loadWithGroupCommit(File file, int compactEvery, Duration window,
+                                                            int maxBatch, boolean awaitDurable) {
+        FileBackedTaskManager fileManager = new FileBackedTaskManager(file, formatOf(file), Math.max(1, compactEvery),
+                new GroupCommitJournal(journalOf(file), window, maxBatch), awaitDurable);
+        fileManager.restore();
+        return fileManager;
     }
 
     @Override
     public void addNewTask(Task task) {
-        super.addNewTask(task);
-        save();
+        commit(() -> {
+            super.addNewTask(task);
+            // задача без startTime не добавляется и id не получает
+            return put(current(TaskType.TASK, task.getId()));
+        });
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        commit(() -> {
+            super.updateTask(task);
+            return put(task);
+        });
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        commit(() -> {
+            super.deleteAllTasks();
+            return clear(TaskType.TASK);
+        });
     }
 
     @Override
     public void deleteTaskById(Integer id) {
-        super.deleteTaskById(id);
-        save();
+        commit(() -> {
+            super.deleteTaskById(id);
+            return delete(TaskType.TASK, id);
+        });
     }
 
     @Override
     public void addNewEpic(Epic epic) {
-        super.addNewEpic(epic);
-        save();
+        commit(() -> {
+            super.addNewEpic(epic);
+            return put(epic);
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        commit(() -> {
+            super.updateEpic(epic);
+            return put(epic);
+        });
     }
 
     @Override
     public void deleteEpicById(Integer id) {
-        super.deleteEpicById(id);
-        save();
+        commit(() -> {
+            super.deleteEpicById(id);
+            return delete(TaskType.EPIC, id);
+        });
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        commit(() -> {
+            super.deleteAllEpics();
+            return clear(TaskType.EPIC);
+        });
     }
 
     @Override
     public void addNewSubTask(SubTask subTask) {
-        super.addNewSubTask(subTask);
-        save();
+        commit(() -> {
+            super.addNewSubTask(subTask);
+            return put(subTask) + put(current(TaskType.EPIC, subTask.getEpicId()));
+        });
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
-        super.updateSubTask(subTask);
-        save();
+        commit(() -> {
+            SubTask oldSubTask = (SubTask) current(TaskType.SUBTASK, subTask.getId());
+            super.updateSubTask(subTask);
+            String record = put(subTask) + put(current(TaskType.EPIC, subTask.getEpicId()));
+            if (oldSubTask != null && !oldSubTask.getEpicId().equals(subTask.getEpicId())) {
+                record += put(current(TaskType.EPIC, oldSubTask.getEpicId()));
+            }
+            return record;
+        });
     }
 
     @Override
     public void deleteSubTaskById(Integer id) {
-        super.deleteSubTaskById(id);
-        save();
+        commit(() -> {
+            SubTask subTask = (SubTask) current(TaskType.SUBTASK, id);
+            super.deleteSubTaskById(id);
+            return delete(TaskType.SUBTASK, id) + put(current(TaskType.EPIC, subTask.getEpicId()));
+        });
     }
 
     @Override
     public void deleteAllSubTasks() {
-        super.deleteAllSubTasks();
-        save();
+        commit(() -> {
+            super.deleteAllSubTasks();
+            StringBuilder record = new StringBuilder(clear(TaskType.SUBTASK));
+            for (Epic epic : getAllEpics()) {
+                record.append(put(epic));
+            }
+            return record.toString();
+        });
+    }
+
+    /**
+     * Весь пакет сохраняется одной записью журнала (или одним снимком при compactEvery = 0):
+     * для каждой операции - итоговое состояние сущности и эпиков, которых касалась подзадача.
+     * Если пакет откатился, на диск ничего не пишется.
+     */
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        List<Integer> ids = new ArrayList<>(operations.size());
+        commit(() -> {
+            Map<Integer, Integer> oldEpicIds = new HashMap<>();
+            for (Operation operation : operations) {
+                Integer id = operation.getId();
+                SubTask subTask = operation.getType() == TaskType.SUBTASK && id != null ? getSubTaskMap().get(id) : null;
+                if (subTask != null) {
+                    oldEpicIds.putIfAbsent(id, subTask.getEpicId());
+                }
+            }
+            ids.addAll(super.applyBatch(operations));
+            StringBuilder record = new StringBuilder();
+            for (int i = 0; i < operations.size(); i++) {
+                Operation operation = operations.get(i);
+                Integer id = ids.get(i);
+                if (operation.getKind() == Operation.Kind.DELETE) {
+                    record.append(delete(operation.getType(), id));
+                } else {
+                    record.append(put(current(operation.getType(), id)));
+                }
+                if (operation.getType() == TaskType.SUBTASK) {
+                    SubTask subTask = getSubTaskMap().get(id);
+                    if (subTask != null) {
+                        record.append(put(getEpicMap().get(subTask.getEpicId())));
+                    }
+                    Integer oldEpicId = oldEpicIds.get(id);
+                    if (oldEpicId != null && (subTask == null || !oldEpicId.equals(subTask.getEpicId()))) {
+                        record.append(put(getEpicMap().get(oldEpicId)));
+                    }
+                }
+            }
+            return record.toString();
+        });
+        return ids;
+    }
+
+    private Task current(TaskType type, Integer id) {
+        if (id == null) {
+            return null;
+        }
+        return switch (type) {
+            case TASK -> getTaskMap().get(id);
+            case EPIC -> getEpicMap().get(id);
+            case SUBTASK -> getSubTaskMap().get(id);
+        };
+    }
+
+    // изменение и постановка записи в журнал атомарны относительно других изменений (не чтений),
+    // ожидание fsync - уже вне монитора;
+    // подписчики узнают об изменении только после того, как запись принята.
+    // Ошибка fsync приходит, когда изменение уже применено в памяти и разослано: оно не откатывается,
+    // исключение означает лишь, что изменение может не пережить перезапуск
+    private void commit(Supplier<String> mutation) {
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            durable = deferEvents(() -> persist(mutation.get()));
+        }
+        if (awaitDurable) {
+            try {
+                durable.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ManagerSaveException failure) {
+                    throw failure;
+                }
+                throw new ManagerSaveException("Ошибка при записи журнала: " + journal, e.getCause());
+            }
+        }
+    }
+
+    // в режиме журнала запись стоит O(1) независимо от размера доски.
+    // Без журнала снимок переписывается целиком, а журнал, оставшийся от прежнего режима, удаляется:
+    // иначе при следующей загрузке он применится поверх более нового снимка
+    private CompletableFuture<Void> persist(String record) {
+        if (compactEvery <= 0) {
+            compact();
+            return CompletableFuture.completedFuture(null);
+        }
+        if (record.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable;
+        if (groupCommit != null) {
+            durable = groupCommit.append(record);
+        } else {
+            try {
+                Files.writeString(journal, record, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при записи журнала: " + journal);
+            }
+            durable = CompletableFuture.completedFuture(null);
+        }
+        journalSize += record.split("\n").length;
+        if (journalSize >= compactEvery) {
+            compact();
+        }
+        return durable;
+    }
+
+    // загрузка заменяет все состояние, поэтому вместо журнала сразу пишется снимок
+    @Override
+    public void bulkLoad(Collection<? extends Task> entities) {
+        synchronized (this) {
+            super.bulkLoad(entities);
+            compact();
+        }
+    }
+
+    // сбрасывает на диск накопленные пакеты группового журнала
+    public void flush() {
+        if (groupCommit != null) {
+            groupCommit.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+    }
+
+    // переписывает снимок и очищает журнал; повторное применение журнала к новому снимку безопасно
+    public synchronized void compact() {
+        if (groupCommit != null) {
+            groupCommit.flush();
+            save();
+            groupCommit.truncate();
+        } else {
+            save();
+            try {
+                Files.deleteIfExists(journal);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при очистке журнала: " + journal);
+            }
+        }
+        journalSize = 0;
+    }
+
+    private static String put(Task task) {
+        return task == null ? "" : CsvSerializer.append(new StringBuilder(PUT).append(','), task).toString();
+    }
+
+    private static String delete(TaskType type, Integer id) {
+        return DELETE + "," + type + "," + id + "\n";
+    }
+
+    private static String clear(TaskType type) {
+        return CLEAR + "," + type + "\n";
+    }
+
+    private static Path journalOf(File file) {
+        return Path.of(file.getPath() + ".journal");
     }
 
     //сохранение задач в файл
@@ -105,29 +371,77 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
             //пробросим исключение наше тогда будет try, catch
             throw new ManagerSaveException("Файл не найден: " + file.getName());
         }
-        StringBuilder sB = new StringBuilder("id,type,name,status,description,duration,localDateTime,epic\n");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toString()))) {
+        if (format == SnapshotFormat.BINARY) {
+            BinarySnapshot.write(file.toPath(), getAllTasks(), getAllEpics(), getAllSubTasks());
+        } else {
+            writeCsv(file);
+        }
+    }
+
+    // выгрузка текущего состояния в CSV независимо от формата снимка
+    public void exportCsv(File target) {
+        writeCsv(target);
+    }
+
+    /**
+     * Импортирует CSV в менеджер с бинарным снимком snapshot и сразу записывает снимок.
+     */
+    public static FileBackedTaskManager importCsv(File csv, File snapshot) {
+        FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot, 0, SnapshotFormat.BINARY);
+        try {
+            List<String> lines = Files.readAllLines(csv.toPath());
+            for (int i = 1; i < lines.size(); i++) {
+                fileManager.putLoaded(fromString(lines.get(i)));
+            }
+            if (!Files.exists(snapshot.toPath())) {
+                Files.createFile(snapshot.toPath());
+            }
+            fileManager.rebuildIndexes();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при импорте из файла: " + e.getMessage());
+        }
+        fileManager.save();
+        return fileManager;
+    }
+
+    // строки пишутся потоком через один буфер сериализатора, без сборки всего файла в памяти.
+    // Как и бинарный снимок, файл пишется рядом, сбрасывается на диск и атомарно подменяет старый:
+    // журнал очищается только после этого, поэтому сбой не теряет ни снимок, ни журнал
+    private void writeCsv(File target) {
+        Path path = target.toPath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        CsvSerializer serializer = new CsvSerializer();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
             for (Task task : getAllTasks()) {
-                sB.append(task.toString());
+                serializer.write(writer, task);
             }
             for (Epic epic : getAllEpics()) {
-                sB.append(epic.toString());
+                serializer.write(writer, epic);
             }
             for (SubTask subTask : getAllSubTasks()) {
-                sB.append(subTask.toString());
+                serializer.write(writer, subTask);
             }
-            writer.write(sB.toString());
+            writer.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи файла: " + target.getPath());
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при записи файла: " + file.getPath());
+            throw new ManagerSaveException("Ошибка при замене файла: " + target.getPath());
         }
     }
 
     public static Task fromString(String value) {
-        String[] fields = value.split(",");
+        String[] fields = CsvSerializer.split(value);
         String id = fields[0].trim();
         String type = fields[1].toUpperCase();
-        String name = fields[2].trim();
-        String description = fields[3].trim();
+        String name = CsvSerializer.unescape(fields[2].trim());
+        String description = CsvSerializer.unescape(fields[3].trim());
         String status = fields[4].toUpperCase();
         Duration duration = fields[5].equals("null") ? Duration.ZERO : Duration.parse(fields[5]);
         LocalDateTime startTime = fields[6].equals("null") ? null : LocalDateTime.parse(fields[6]);
@@ -153,22 +467,85 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     //     метод будет восстанавливать данные менеджера из файла при запуске программы.
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager fileManager = new FileBackedTaskManager(file);
+        return loadFromFile(file, 0);
+    }
+
+    // снимок, затем журнал изменений поверх него; формат снимка определяется по содержимому файла
+    public static FileBackedTaskManager loadFromFile(File file, int compactEvery) {
+        FileBackedTaskManager fileManager = new FileBackedTaskManager(file, compactEvery, formatOf(file));
+        fileManager.restore();
+        return fileManager;
+    }
+
+    private static SnapshotFormat formatOf(File file) {
+        return BinarySnapshot.isBinary(file.toPath()) ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
+    }
+
+    private void restore() {
         try {
-            List<String> lines = Files.readAllLines(file.toPath());
-            for (int i = 1; i < lines.size(); i++) {
-                Task task = fromString(lines.get(i));
-                if (task instanceof Epic) {
-                    fileManager.getEpicMap().put(task.getId(), (Epic) task);
-                } else if (task instanceof SubTask) {
-                    fileManager.getSubTaskMap().put(task.getId(), (SubTask) task);
-                } else {
-                    fileManager.getTaskMap().put(task.getId(), task);
-                }
+            if (format == SnapshotFormat.BINARY) {
+                BinarySnapshot.read(file.toPath(), this::putLoaded);
+            } else {
+                MappedCsvReader.read(file.toPath(), this::putLoaded);
+            }
+            boolean replayed = Files.exists(journal);
+            if (replayed) {
+                String records = new String(Files.readAllBytes(journal), StandardCharsets.UTF_8);
+                // строка без перевода строки в конце - запись, оборванная сбоем; ее изменение не было подтверждено
+                records.substring(0, records.lastIndexOf('\n') + 1).lines()
+                        .filter(record -> !record.isBlank())
+                        .forEach(this::replay);
+            }
+            rebuildIndexes();
+            // примененный журнал сворачивается в снимок, чтобы он не лег повторно поверх следующих сохранений
+            if (replayed) {
+                compact();
             }
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка при загрузки из файла: " + e.getMessage());
         }
-        return fileManager;
+    }
+
+    private void putLoaded(Task task) {
+        if (task instanceof Epic) {
+            getEpicMap().put(task.getId(), (Epic) task);
+        } else if (task instanceof SubTask) {
+            getSubTaskMap().put(task.getId(), (SubTask) task);
+        } else {
+            getTaskMap().put(task.getId(), task);
+        }
+    }
+
+    private void replay(String record) {
+        String[] fields = record.split(",", 2);
+        switch (fields[0]) {
+            case PUT -> putLoaded(fromString(fields[1]));
+            case DELETE -> {
+                String[] args = fields[1].split(",");
+                int id = Integer.parseInt(args[1].trim());
+                switch (TaskType.valueOf(args[0])) {
+                    case TASK -> getTaskMap().remove(id);
+                    case SUBTASK -> getSubTaskMap().remove(id);
+                    case EPIC -> {
+                        getEpicMap().remove(id);
+                        getSubTaskMap().values().removeIf(subTask -> subTask.getEpicId() == id);
+                    }
+                }
+            }
+            case CLEAR -> clearLoaded(TaskType.valueOf(fields[1].trim()));
+            default -> throw new ManagerSaveException("Неизвестная запись журнала: " + record);
+        }
+    }
+
+    private void clearLoaded(TaskType type) {
+        Map<Integer, ? extends Task> map = switch (type) {
+            case TASK -> getTaskMap();
+            case EPIC -> getEpicMap();
+            case SUBTASK -> getSubTaskMap();
+        };
+        map.clear();
+        if (type == TaskType.EPIC) {
+            getSubTaskMap().clear();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package tasktracker.fileservice;
+
+import tasktracker.fileservice.exception.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Журнал с групповой фиксацией: записи, пришедшие в пределах окна window или до maxBatch штук,
+ * сбрасываются на диск одной операцией write и одним FileChannel.force.
+ * Каждая запись получает CompletableFuture, который завершается, когда её пакет стал durable.
+ */
+class GroupCommitJournal implements AutoCloseable {
+    private final Path path;
+    private final FileChannel channel;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final Object lock = new Object();
+    private final Object writeLock = new Object();
+    private final Thread flusher;
+
+    private StringBuilder pending = new StringBuilder();
+    private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    private int pendingOps = 0;
+    private boolean closed = false;
+
+    GroupCommitJournal(Path path, Duration window, int maxBatch) {
+        this.path = path;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = Math.max(1, maxBatch);
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при открытии журнала: " + path);
+        }
+        flusher = new Thread(this::runFlusher, "journal-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public CompletableFuture<Void> append(String record) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (lock) {
+            if (closed) {
+                throw new ManagerSaveException("Журнал закрыт: " + path);
+            }
+            pending.append(record);
+            waiters.add(durable);
+            pendingOps++;
+            lock.notifyAll();
+        }
+        return durable;
+    }
+
+    // синхронно сбрасывает все накопленные записи
+    public void flush() {
+        writeBatch();
+    }
+
+    public void truncate() {
+        synchronized (writeLock) {
+            writeBatch();
+            try {
+                channel.truncate(0);
+                channel.force(true);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при очистке журнала: " + path);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeBatch();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при закрытии журнала: " + path);
+        }
+    }
+
+    private void runFlusher() {
+        try {
+            while (awaitBatch()) {
+                writeBatch();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ждет первую запись, затем окно window или заполнения пакета
+    private boolean awaitBatch() throws InterruptedException {
+        synchronized (lock) {
+            while (pendingOps == 0 && !closed) {
+                lock.wait();
+            }
+            if (closed) {
+                return false;
+            }
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining = windowNanos;
+            while (pendingOps < maxBatch && !closed && remaining > 0) {
+                lock.wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                remaining = deadline - System.nanoTime();
+            }
+            return true;
+        }
+    }
+
+    // отрезает недописанный пакет, чтобы следующие записи не легли после обрывка;
+    // если не вышло, обрывок в конце журнала пропустит восстановление
+    private void discardFrom(long start) {
+        if (start < 0) {
+            return;
+        }
+        try {
+            channel.truncate(start);
+        } catch (IOException ignored) {
+            // журнал уже поврежден, исходная ошибка важнее
+        }
+    }
+
+    private void writeBatch() {
+        synchronized (writeLock) {
+            String batch;
+            List<CompletableFuture<Void>> batchWaiters;
+            synchronized (lock) {
+                if (pendingOps == 0) {
+                    return;
+                }
+                batch = pending.toString();
+                batchWaiters = waiters;
+                pending = new StringBuilder();
+                waiters = new ArrayList<>();
+                pendingOps = 0;
+            }
+            long start = -1;
+            try {
+                start = channel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(batch.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                batchWaiters.forEach(waiter -> waiter.complete(null));
+            } catch (IOException e) {
+                discardFrom(start);
+                ManagerSaveException failure = new ManagerSaveException("Ошибка при записи журнала: " + path);
+                batchWaiters.forEach(waiter -> waiter.completeExceptionally(failure));
+            }
+        }
+    }
+}
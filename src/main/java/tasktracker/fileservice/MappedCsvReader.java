@@ -0,0 +1,302 @@
+package tasktracker.fileservice;
+
+import tasktracker.fileservice.exception.ManagerSaveException;
+import tasktracker.model.Epic;
+import tasktracker.model.Progress;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Загрузка CSV-снимка через MappedByteBuffer.
+ * Строки разбираются прямо в отображенной памяти: String создаются только для name и description,
+ * числа, тип и статус читаются из байтов, даты парсятся через CharSequence-окно без копирования.
+ * Правила разбора совпадают с FileBackedTaskManager.fromString, первая строка - заголовок.
+ * Большой файл делится на куски по границам строк, которые разбираются параллельно в ForkJoinPool,
+ * а результаты склеиваются в порядке файла, поэтому более поздняя строка по-прежнему побеждает.
+ */
+final class MappedCsvReader {
+    private static final int FIELDS = 8;
+    // кусок меньше этого размера разбирается одним потоком
+    static final int CHUNK_BYTES = 1 << 20;
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Progress[] STATUSES = Progress.values();
+
+    private final ByteBuffer buffer;
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final AsciiView view = new AsciiView();
+    private byte[] scratch = new byte[256];
+    private int fieldCount;
+
+    private MappedCsvReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        view.buffer = buffer;
+    }
+
+    static void read(Path path, Consumer<Task> sink) {
+        read(path, sink, ForkJoinPool.commonPool());
+    }
+
+    static void read(Path path, Consumer<Task> sink, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Файл слишком велик для отображения в память: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int start = lineAfter(mapped, 0);
+            if (start < mapped.limit()) {
+                pool.invoke(new ChunkTask(mapped, start, mapped.limit())).forEach(sink);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при загрузки из файла: " + e.getMessage());
+        }
+    }
+
+    // начало строки, следующей за той, в которой лежит from
+    private static int lineAfter(ByteBuffer buffer, int from) {
+        int limit = buffer.limit();
+        int position = from;
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return Math.min(position + 1, limit);
+    }
+
+    private List<Task> parse(int from, int to) {
+        List<Task> tasks = new ArrayList<>();
+        int position = from;
+        while (position < to) {
+            int lineEnd = position;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > position) {
+                tasks.add(parseRecord(position, contentEnd));
+            }
+            position = lineEnd + 1;
+        }
+        return tasks;
+    }
+
+    private Task parseRecord(int from, int to) {
+        split(from, to);
+        if (fieldCount < 7) {
+            throw new IllegalArgumentException("Некорректная строка: " + text(from, to));
+        }
+        int id = parseInt(trimStart(0), trimEnd(0));
+        TaskType type = (TaskType) match(TYPES, starts[1], ends[1]);
+        if (type == null) {
+            throw new ManagerSaveException("Неизвестный тип задачи: " + text(starts[1], ends[1]));
+        }
+        String name = CsvSerializer.unescape(text(trimStart(2), trimEnd(2)));
+        String description = CsvSerializer.unescape(text(trimStart(3), trimEnd(3)));
+        Progress status = (Progress) match(STATUSES, starts[4], ends[4]);
+        if (status == null) {
+            throw new IllegalArgumentException("Неизвестный статус: " + text(starts[4], ends[4]));
+        }
+        Duration duration = isNull(5) ? Duration.ZERO : Duration.parse(view.of(starts[5], ends[5]));
+        LocalDateTime startTime = isNull(6) ? null : LocalDateTime.parse(view.of(starts[6], ends[6]));
+
+        return switch (type) {
+            case TASK -> new Task(id, name, description, status, duration, startTime);
+            case EPIC -> new Epic(id, name, description, status, duration, startTime);
+            case SUBTASK -> {
+                if (fieldCount < FIELDS) {
+                    throw new IllegalArgumentException("Подзадача должна содержать ID эпика: " + text(from, to));
+                }
+                yield new SubTask(id, name, description, status, duration, startTime,
+                        parseInt(starts[7], ends[7]));
+            }
+        };
+    }
+
+    // границы первых FIELDS полей; как и String.split, пустые поля в конце строки не считаются,
+    // экранированная запятая поле не делит
+    private void split(int from, int to) {
+        fieldCount = 0;
+        int start = from;
+        for (int i = from; i <= to && fieldCount < FIELDS; i++) {
+            if (i < to - 1 && buffer.get(i) == '\\') {
+                i++;
+            } else if (i == to || buffer.get(i) == ',') {
+                starts[fieldCount] = start;
+                ends[fieldCount] = i;
+                fieldCount++;
+                start = i + 1;
+            }
+        }
+        while (fieldCount > 0 && starts[fieldCount - 1] == ends[fieldCount - 1]) {
+            fieldCount--;
+        }
+    }
+
+    private int trimStart(int field) {
+        int position = starts[field];
+        while (position < ends[field] && (buffer.get(position) & 0xFF) <= ' ') {
+            position++;
+        }
+        return position;
+    }
+
+    private int trimEnd(int field) {
+        int position = ends[field];
+        while (position > starts[field] && (buffer.get(position - 1) & 0xFF) <= ' ') {
+            position--;
+        }
+        return position;
+    }
+
+    private boolean isNull(int field) {
+        if (ends[field] - starts[field] != NULL.length) {
+            return false;
+        }
+        for (int i = 0; i < NULL.length; i++) {
+            if (buffer.get(starts[field] + i) != NULL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // имя константы без учета регистра, как valueOf(toUpperCase())
+    private Enum<?> match(Enum<?>[] values, int from, int to) {
+        for (Enum<?> value : values) {
+            String name = value.name();
+            if (name.length() != to - from) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length() && Character.toUpperCase((char) (buffer.get(from + i) & 0xFF)) == name.charAt(i)) {
+                i++;
+            }
+            if (i == name.length()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private int parseInt(int from, int to) {
+        if (from == to) {
+            throw new NumberFormatException("Пустое число");
+        }
+        int position = from;
+        boolean negative = buffer.get(position) == '-';
+        if (negative || buffer.get(position) == '+') {
+            position++;
+        }
+        if (position == to) {
+            throw new NumberFormatException("Некорректное число: " + text(from, to));
+        }
+        long value = 0;
+        for (; position < to; position++) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Некорректное число: " + text(from, to));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Некорректное число: " + text(from, to));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Некорректное число: " + text(from, to));
+        }
+        return (int) value;
+    }
+
+    private String text(int from, int to) {
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // делит диапазон пополам по границе строки; у каждого куска свой разборщик, буфер читается абсолютно
+    private static final class ChunkTask extends RecursiveTask<List<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            int middle = to - from > CHUNK_BYTES ? lineAfter(buffer, from + (to - from) / 2) : to;
+            if (middle >= to) {
+                return new MappedCsvReader(buffer).parse(from, to);
+            }
+            ChunkTask left = new ChunkTask(buffer, from, middle);
+            left.fork();
+            List<Task> right = new ChunkTask(buffer, middle, to).compute();
+            List<Task> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+
+    // окно над ASCII-байтами буфера для Duration.parse и LocalDateTime.parse
+    private static final class AsciiView implements CharSequence {
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        AsciiView of(int from, int to) {
+            offset = from;
+            length = to - from;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes, 0, length);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package tasktracker.fileservice;
+
+/**
+ * Формат файла снимка FileBackedTaskManager.
+ * CSV остается форматом импорта/экспорта, BINARY - быстрый формат для холодного старта.
+ */
+public enum SnapshotFormat {
+    CSV,
+    BINARY
+}
@@ -0,0 +1,196 @@
+package tasktracker.history;
+
+import tasktracker.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * История просмотров на заранее выделенных параллельных массивах.
+ * Двусвязный список хранится в массивах индексов next/prev, свободные ячейки - в free-list,
+ * а поиск по id идет через открытую адресацию по массивам int, поэтому add/remove не создают объектов.
+ * При заполнении емкости вытесняется самая старая запись.
+ */
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NIL = -1;
+
+    private final int capacity;
+    private final int[] ids;
+    private final int[] next;
+    private final int[] prev;
+    private final Task[] tasks;
+
+    // id -> номер ячейки, линейное пробирование
+    private final int[] tableKeys;
+    private final int[] tableSlots;
+    private final int mask;
+
+    private int head = NIL;
+    private int tail = NIL;
+    private int freeHead;
+    private int size = 0;
+
+    public ArrayHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость истории должна быть больше 0: " + capacity);
+        }
+        this.capacity = capacity;
+        ids = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        tasks = new Task[capacity];
+        for (int i = 0; i < capacity; i++) {
+            next[i] = i + 1 < capacity ? i + 1 : NIL;
+        }
+        freeHead = 0;
+
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        tableKeys = new int[tableSize];
+        tableSlots = new int[tableSize];
+        Arrays.fill(tableSlots, NIL);
+        mask = tableSize - 1;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null || task.getId() == null) {
+            return;
+        }
+        int id = task.getId();
+        int slot = find(id);
+        if (slot != NIL) {
+            tasks[slot] = task;
+            unlink(slot);
+            linkLast(slot);
+            return;
+        }
+        if (size == capacity) {
+            remove(ids[head]);
+        }
+        slot = freeHead;
+        freeHead = next[slot];
+        ids[slot] = id;
+        tasks[slot] = task;
+        linkLast(slot);
+        insert(id, slot);
+        size++;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> result = new ArrayList<>(size);
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            result.add(tasks[slot]);
+        }
+        return result;
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = delete(id);
+        if (slot == NIL) {
+            return;
+        }
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    @Override
+    public Task getHistoryTasks(Integer id) {
+        int slot = id == null ? NIL : find(id);
+        if (slot == NIL) {
+            throw new NoSuchElementException();
+        }
+        return tasks[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before == NIL) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NIL) {
+            tail = before;
+        } else {
+            prev[after] = before;
+        }
+    }
+
+    private int home(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(int id) {
+        for (int i = home(id); tableSlots[i] != NIL; i = (i + 1) & mask) {
+            if (tableKeys[i] == id) {
+                return tableSlots[i];
+            }
+        }
+        return NIL;
+    }
+
+    private void insert(int id, int slot) {
+        int i = home(id);
+        while (tableSlots[i] != NIL) {
+            i = (i + 1) & mask;
+        }
+        tableKeys[i] = id;
+        tableSlots[i] = slot;
+    }
+
+    // удаление со сдвигом назад, чтобы цепочки пробирования не рвались
+    private int delete(int id) {
+        int i = home(id);
+        while (tableSlots[i] != NIL && tableKeys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        if (tableSlots[i] == NIL) {
+            return NIL;
+        }
+        int slot = tableSlots[i];
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (tableSlots[j] == NIL) {
+                break;
+            }
+            int k = home(tableKeys[j]);
+            boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+            if (!stays) {
+                tableKeys[i] = tableKeys[j];
+                tableSlots[i] = tableSlots[j];
+                i = j;
+            }
+        }
+        tableSlots[i] = NIL;
+        return slot;
+    }
+}
@@ -5,9 +5,29 @@ import tasktracker.model.Task;
 import java.util.*;
 
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int UNBOUNDED = 0;
+    // примерная стоимость узла списка и записи индекса (Node, HashMap.Node, Integer)
+    private static final int NODE_OVERHEAD_BYTES = 32 + 48;
+    private static final int TASK_BYTES = 48 + 24 + 48;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
     private final Map<Integer, Node<Task>> indexHistoryMap = new HashMap<>();
+    private final int maxSize;
     private Node<Task> tail;
     private Node<Task> head;
+    private long approximateBytes = 0;
+
+    public InMemoryHistoryManager() {
+        this(UNBOUNDED);
+    }
+
+    /**
+     * @param maxSize максимальное число записей истории; при переполнении вытесняется самая старая.
+     *                UNBOUNDED - без ограничения
+     */
+    public InMemoryHistoryManager(int maxSize) {
+        this.maxSize = maxSize;
+    }
 
     @Override
     public void add(Task task) {
@@ -27,17 +47,18 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     @Override
     public void remove(int id) {
-        Node<Task> taskNode = indexHistoryMap.get(id);
+        Node<Task> taskNode = indexHistoryMap.remove(id);
         if (taskNode != null) {
             removeNode(taskNode);
         }
     }
 
     public void addLast(Task task) {
-        if (indexHistoryMap.containsKey(task.getId())) {
-            removeNode(indexHistoryMap.get(task.getId()));
+        Node<Task> previous = indexHistoryMap.remove(task.getId());
+        if (previous != null) {
+            removeNode(previous);
         }
-        Node<Task> newNode = new Node<>(task);
+        Node<Task> newNode = new Node<>(task, estimateBytes(task));
         if (head == null) {
             head = tail = newNode;
         } else {
@@ -46,6 +67,35 @@ public class InMemoryHistoryManager implements HistoryManager {
             tail = newNode;
         }
         indexHistoryMap.put(task.getId(), newNode);
+        approximateBytes += newNode.getBytes();
+        if (maxSize > 0 && indexHistoryMap.size() > maxSize) {
+            indexHistoryMap.remove(head.getData().getId());
+            removeNode(head);
+        }
+    }
+
+    // число записей, которые сейчас хранит история
+    public int size() {
+        return indexHistoryMap.size();
+    }
+
+    // приблизительный объем памяти, занятый историей, в байтах
+    public long getApproximateBytes() {
+        return approximateBytes;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static int estimateBytes(Task task) {
+        return NODE_OVERHEAD_BYTES + TASK_BYTES
+                + estimateBytes(task.getName())
+                + estimateBytes(task.getDescription());
+    }
+
+    private static int estimateBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + 2 * value.length();
     }
 
     public Task getHistoryTasks(Integer id) {
@@ -76,22 +126,28 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
         taskNode.setNext(null);
         taskNode.setPrev(null);
+        approximateBytes -= taskNode.getBytes();
     }
 
     static class Node<E> {
         private final E data;
+        private final int bytes;
         private Node<E> next;
         private Node<E> prev;
 
-        public Node(E data) {
+        public Node(E data, int bytes) {
             this.data = data;
-
+            this.bytes = bytes;
         }
 
         public E getData() {
             return data;
         }
 
+        public int getBytes() {
+            return bytes;
+        }
+
         public Node<E> getPrev() {
             return prev;
         }
@@ -0,0 +1,36 @@
+package tasktracker.history;
+
+import tasktracker.model.Task;
+
+import java.util.List;
+
+/**
+ * Потокобезопасная обертка над HistoryManager: все обращения идут под одним монитором.
+ */
+public class SynchronizedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+
+    public SynchronizedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        delegate.add(task);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return delegate.getHistory();
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public synchronized Task getHistoryTasks(Integer id) {
+        return delegate.getHistoryTasks(id);
+    }
+}
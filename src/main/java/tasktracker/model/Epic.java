@@ -1,12 +1,14 @@
 package tasktracker.model;
 
-import tasktracker.fileservice.TaskType;
-
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 public class Epic extends Task {
 
@@ -14,6 +16,19 @@ public class Epic extends Task {
 
     private LocalDateTime endTime;
 
+    // агрегаты по подзадачам поддерживаются инкрементально и не сериализуются
+    private transient Map<SubTask, Contribution> contributions;
+
+    private transient NavigableMap<LocalDateTime, Integer> startTimes;
+
+    private transient NavigableMap<LocalDateTime, Integer> endTimes;
+
+    private transient Duration totalDuration;
+
+    private transient int newCount;
+
+    private transient int doneCount;
+
 
     public Epic(Integer id, String name, String description, Progress status) {
         super(id, name, description, status);
@@ -42,73 +57,151 @@ public class Epic extends Task {
 
     public Epic(Epic copyEpic) {
         super(copyEpic);
-        subTaskList = copyEpic.subTaskList;
+        subTaskList = copyEpic.subTaskList == null ? new ArrayList<>() : new ArrayList<>(copyEpic.subTaskList);
         duration = copyEpic.duration;
         startTime = copyEpic.startTime;
         endTime = copyEpic.endTime;
     }
 
+    // только для чтения: состав подзадач меняется через addSubTask/removeSubTask/clearSubTasks
     public List<SubTask> getSubTaskList() {
         if (subTaskList == null) {
             subTaskList = new ArrayList<>();
         }
-        recalculateDurationAndTime();
-        return subTaskList;
+        return Collections.unmodifiableList(subTaskList);
+    }
+
+    public void addSubTask(SubTask subTask) {
+        ensureAggregates();
+        subTaskList.add(subTask);
+        contribute(subTask);
+        applyAggregates();
+    }
+
+    public void removeSubTask(SubTask subTask) {
+        ensureAggregates();
+        if (subTaskList.removeIf(existing -> existing == subTask)) {
+            withdraw(contributions.remove(subTask));
+            applyAggregates();
+        }
+    }
+
+    public void clearSubTasks() {
+        ensureAggregates();
+        subTaskList.clear();
+        resetAggregates();
+        applyAggregates();
+    }
+
+    /**
+     * Статус по счетчикам подзадач за O(1): нет подзадач или все NEW - NEW, все DONE - DONE,
+     * иначе IN_PROGRESS.
+     */
+    public Progress getAggregatedStatus() {
+        ensureAggregates();
+        int size = subTaskList.size();
+        if (size == 0 || newCount == size) {
+            return Progress.NEW;
+        }
+        if (doneCount == size) {
+            return Progress.DONE;
+        }
+        return Progress.IN_PROGRESS;
+    }
+
+    // вклад подзадачи запоминается, чтобы корректно вычесть его, даже если объект подзадачи изменили
+    private void contribute(SubTask subTask) {
+        Contribution contribution = new Contribution(subTask);
+        contributions.put(subTask, contribution);
+        if (contribution.status == Progress.NEW) {
+            newCount++;
+        } else if (contribution.status == Progress.DONE) {
+            doneCount++;
+        }
+        if (contribution.duration != null) {
+            totalDuration = totalDuration.plus(contribution.duration);
+        }
+        increment(startTimes, contribution.startTime);
+        increment(endTimes, contribution.endTime);
     }
 
-    private void recalculateDurationAndTime() {
+    private void withdraw(Contribution contribution) {
+        if (contribution == null) {
+            return;
+        }
+        if (contribution.status == Progress.NEW) {
+            newCount--;
+        } else if (contribution.status == Progress.DONE) {
+            doneCount--;
+        }
+        if (contribution.duration != null) {
+            totalDuration = totalDuration.minus(contribution.duration);
+        }
+        decrement(startTimes, contribution.startTime);
+        decrement(endTimes, contribution.endTime);
+    }
+
+    private void applyAggregates() {
         if (subTaskList.isEmpty()) {
             duration = Duration.ZERO;
             startTime = null;
             endTime = null;
             return;
         }
-        // Продолжительность всех подзадач
-        duration = subTaskList.stream()
-                .map(SubTask::getDuration)
-                .filter(Objects::nonNull)
-                .reduce(Duration.ZERO, Duration::plus);
+        duration = totalDuration;
+        startTime = startTimes.isEmpty() ? null : startTimes.firstKey();
+        endTime = endTimes.isEmpty() ? null : endTimes.lastKey();
+    }
 
-        //Определяем минимальную подзадачу по времени
-        startTime = subTaskList.stream()
-                .map(SubTask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
+    private void resetAggregates() {
+        contributions = new IdentityHashMap<>();
+        startTimes = new TreeMap<>();
+        endTimes = new TreeMap<>();
+        totalDuration = Duration.ZERO;
+        newCount = 0;
+        doneCount = 0;
+    }
 
-        endTime = subTaskList.stream()
-                .map(SubTask::getEndTime)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
+    // эпики из JSON и копии собираются без агрегатов, поэтому строим их по списку при первом обращении
+    private void ensureAggregates() {
+        if (subTaskList == null) {
+            subTaskList = new ArrayList<>();
+        }
+        if (contributions == null) {
+            resetAggregates();
+            for (SubTask subTask : subTaskList) {
+                contribute(subTask);
+            }
+        }
+    }
 
-        setDuration(duration);
-        setStartTime(startTime);
-        setEndTime(endTime);
+    private static void increment(NavigableMap<LocalDateTime, Integer> counts, LocalDateTime time) {
+        if (time != null) {
+            counts.merge(time, 1, Integer::sum);
+        }
+    }
 
+    private static void decrement(NavigableMap<LocalDateTime, Integer> counts, LocalDateTime time) {
+        if (time != null) {
+            counts.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+        }
     }
 
-    public void addSubTask(SubTask subTask) {
-        if (subTaskList == null) {
-            subTaskList = new ArrayList<>();
+    private static class Contribution {
+        private final Progress status;
+        private final Duration duration;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        Contribution(SubTask subTask) {
+            status = subTask.getStatus();
+            duration = subTask.getDuration();
+            startTime = subTask.getStartTime();
+            endTime = subTask.getEndTime();
         }
-        subTaskList.add(subTask);
     }
 
     public void setEndTime(LocalDateTime endTime) {
         this.endTime = endTime;
     }
-
-    @Override
-    public String toString() {
-        return String.format("%d,%s,%s,%s,%s,%s,%s%n",
-                getId(),
-                TaskType.EPIC,
-                getName(),
-                getDescription(),
-                getStatus(),
-                getDuration(),
-                getStartTime());
-    }
 }
-
@@ -1,7 +1,5 @@
 package tasktracker.model;
 
-import tasktracker.fileservice.TaskType;
-
 import java.time.Duration;
 import java.time.LocalDateTime;
 
@@ -36,18 +34,4 @@ public class SubTask extends Task {
     public Integer getEpicId() {
         return epicId;
     }
-
-    @Override
-    public String toString() {
-        return String.format("%d,%s,%s,%s,%s,%s,%s,%d%n",
-                getId(),
-                TaskType.SUBTASK,
-                getName(),
-                getDescription(),
-                getStatus(),
-                getDuration(),
-                getStartTime(),
-                getEpicId());
-    }
 }
-
@@ -1,6 +1,6 @@
 package tasktracker.model;
 
-import tasktracker.fileservice.TaskType;
+import tasktracker.fileservice.CsvSerializer;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -150,15 +150,9 @@ public class Task {
         return Objects.hash(id);
     }
 
+    // CSV-строка задачи, см. CsvSerializer
     @Override
     public String toString() {
-        return String.format("%d,%s,%s,%s,%s,%s,%s%n",
-                id,
-                TaskType.TASK,
-                name,
-                description,
-                status,
-                duration,
-                startTime);
+        return CsvSerializer.toLine(this);
     }
 }
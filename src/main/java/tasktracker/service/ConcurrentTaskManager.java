@@ -0,0 +1,406 @@
+package tasktracker.service;
+
+import tasktracker.fileservice.TaskType;
+import tasktracker.history.HistoryManager;
+import tasktracker.history.SynchronizedHistoryManager;
+import tasktracker.model.Epic;
+import tasktracker.model.Progress;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасный менеджер задач для многопоточного HTTP-сервера.
+ * Изменения одного эпика (и его подзадач) идут под полосой блокировок по id эпика,
+ * поэтому запись в разные эпики выполняется параллельно. Расписание (sortedTaskSet и индекс
+ * интервалов) защищено отдельным коротким монитором, массовые удаления берут эксклюзивную блокировку.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private static final int STRIPES = 64;
+
+    private final AtomicInteger idGenerator = new AtomicInteger();
+    private final ReentrantReadWriteLock bulkLock = new ReentrantReadWriteLock();
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final Object scheduleLock = new Object();
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        super(new SynchronizedHistoryManager(historyManager),
+                new ConcurrentSkipListMap<>(), new ConcurrentSkipListMap<>(), new ConcurrentSkipListMap<>());
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected int nextId() {
+        return idGenerator.incrementAndGet();
+    }
+
+    @Override
+    protected void restoreIdSequence(int lastId) {
+        idGenerator.set(lastId);
+    }
+
+    @Override
+    public void bulkLoad(Collection<? extends Task> entities) {
+        runExclusive(() -> {
+            synchronized (scheduleLock) {
+                super.bulkLoad(entities);
+            }
+        });
+    }
+
+    // пакет применяется и откатывается целиком, поэтому идет под эксклюзивной блокировкой
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        return supplyExclusive(() -> {
+            synchronized (scheduleLock) {
+                return super.applyBatch(operations);
+            }
+        });
+    }
+
+    /**
+     * Task
+     */
+    @Override
+    public void addNewTask(Task task) {
+        runShared(() -> super.addNewTask(task));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        runLocked(task.getId(), () -> super.updateTask(task));
+    }
+
+    @Override
+    public void deleteTaskById(Integer id) {
+        runLocked(id, () -> super.deleteTaskById(id));
+    }
+
+    // просмотр пишет в историю, поэтому идет под той же полосой, что и удаление:
+    // иначе удаленная задача могла бы вернуться в историю
+    @Override
+    public Task getTaskById(Integer id) {
+        return supplyLocked(id, () -> super.getTaskById(id));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        runExclusive(super::deleteAllTasks);
+    }
+
+    /**
+     * Epic
+     */
+    @Override
+    public void addNewEpic(Epic epic) {
+        runShared(() -> super.addNewEpic(epic));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        runLocked(epic.getId(), () -> super.updateEpic(epic));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        runExclusive(super::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteEpicById(Integer id) {
+        runLocked(id, () -> super.deleteEpicById(id));
+    }
+
+    @Override
+    public Epic getEpicById(Integer id) {
+        return supplyLocked(id, () -> super.getEpicById(id));
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return copyEpics(super.getAllEpics());
+    }
+
+    @Override
+    public List<Epic> getEpics(Integer afterId, int limit) {
+        return copyEpics(super.getEpics(afterId, limit));
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        runLocked(epic.getId(), () -> super.updateEpicStatus(epic));
+    }
+
+    /***
+     * SubTask
+     * */
+    @Override
+    public void addNewSubTask(SubTask subTask) {
+        runLocked(subTask.getEpicId(), () -> super.addNewSubTask(subTask));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        bulkLock.readLock().lock();
+        try {
+            while (true) {
+                SubTask current = subTask.getId() == null ? null : getSubTaskMap().get(subTask.getId());
+                Integer oldEpicId = current == null ? subTask.getEpicId() : current.getEpicId();
+                Lock[] locks = stripesFor(oldEpicId, subTask.getEpicId());
+                lockAll(locks);
+                try {
+                    // подзадачу могли перенести в другой эпик, пока ждали блокировку
+                    SubTask actual = subTask.getId() == null ? null : getSubTaskMap().get(subTask.getId());
+                    if (actual == current) {
+                        super.updateSubTask(subTask);
+                        return;
+                    }
+                } finally {
+                    unlockAll(locks);
+                }
+            }
+        } finally {
+            bulkLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubTaskById(Integer id) {
+        supplyLockedByEpicOf(id, () -> {
+            super.deleteSubTaskById(id);
+            return null;
+        });
+    }
+
+    // как и удаление, под полосой эпика подзадачи, чтобы удаленная подзадача не вернулась в историю
+    @Override
+    public SubTask getSubTaskById(Integer id) {
+        return supplyLockedByEpicOf(id, () -> super.getSubTaskById(id));
+    }
+
+    @Override
+    public void deleteAllSubTasks() {
+        runExclusive(super::deleteAllSubTasks);
+    }
+
+    // копии эпиков снимаются уже после выхода из scheduleLock: полоса всегда берется раньше него
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> tasks;
+        synchronized (scheduleLock) {
+            tasks = super.getPrioritizedTasks();
+        }
+        return copyEpics(tasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(Task after, int limit) {
+        List<Task> tasks;
+        synchronized (scheduleLock) {
+            tasks = super.getPrioritizedTasks(after, limit);
+        }
+        return copyEpics(tasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> tasks;
+        synchronized (scheduleLock) {
+            tasks = super.getPrioritizedBetween(from, to);
+        }
+        return copyEpics(tasks);
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskType type, Progress status) {
+        return copyEpics(super.getByStatus(type, status));
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskType type, Progress status, Integer afterId, int limit) {
+        return copyEpics(super.getByStatus(type, status, afterId, limit));
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return copyEpics(super.search(query, limit));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore) {
+        synchronized (scheduleLock) {
+            return super.findFreeSlot(duration, notBefore);
+        }
+    }
+
+    // поиск промежутка и вставка идут под одним scheduleLock, поэтому найденное место никто не займет;
+    // внешние блокировки берутся раньше scheduleLock, как и в остальных операциях
+    @Override
+    public void scheduleNewTask(Task task, LocalDateTime notBefore) {
+        runShared(() -> {
+            synchronized (scheduleLock) {
+                super.scheduleNewTask(task, notBefore);
+            }
+        });
+    }
+
+    @Override
+    public void scheduleNewSubTask(SubTask subTask, LocalDateTime notBefore) {
+        runLocked(subTask.getEpicId(), () -> {
+            synchronized (scheduleLock) {
+                super.scheduleNewSubTask(subTask, notBefore);
+            }
+        });
+    }
+
+    @Override
+    public boolean validateOverlapping(Task task) {
+        synchronized (scheduleLock) {
+            return super.validateOverlapping(task);
+        }
+    }
+
+    @Override
+    protected void addPrioritized(Task task) {
+        synchronized (scheduleLock) {
+            super.addPrioritized(task);
+        }
+    }
+
+    @Override
+    protected void removePrioritized(Task task) {
+        synchronized (scheduleLock) {
+            super.removePrioritized(task);
+        }
+    }
+
+    @Override
+    protected boolean scheduleNew(Task task) {
+        synchronized (scheduleLock) {
+            return super.scheduleNew(task);
+        }
+    }
+
+    @Override
+    protected boolean reschedule(Task oldTask, Task newTask) {
+        synchronized (scheduleLock) {
+            return super.reschedule(oldTask, newTask);
+        }
+    }
+
+    // эпик меняется на месте под полосой своего id (список подзадач, время, статус),
+    // поэтому наружу уходит копия, снятая под той же полосой, как в getEpicById
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> copyEpics(List<T> items) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) instanceof Epic epic) {
+                items.set(i, (T) supplyLocked(epic.getId(), () -> new Epic(epic)));
+            }
+        }
+        return items;
+    }
+
+    private Lock stripeFor(Integer id) {
+        return stripes[id == null ? 0 : Math.floorMod(id, STRIPES)];
+    }
+
+    // блокировки берутся в порядке индекса полосы, чтобы исключить взаимную блокировку
+    private Lock[] stripesFor(Integer first, Integer second) {
+        int a = first == null ? 0 : Math.floorMod(first, STRIPES);
+        int b = second == null ? 0 : Math.floorMod(second, STRIPES);
+        if (a == b) {
+            return new Lock[]{stripes[a]};
+        }
+        return new Lock[]{stripes[Math.min(a, b)], stripes[Math.max(a, b)]};
+    }
+
+    private static void lockAll(Lock[] locks) {
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private static void unlockAll(Lock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private void runShared(Runnable action) {
+        bulkLock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            bulkLock.readLock().unlock();
+        }
+    }
+
+    private void runLocked(Integer id, Runnable action) {
+        supplyLocked(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T supplyLocked(Integer id, Supplier<T> action) {
+        bulkLock.readLock().lock();
+        Lock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlock();
+            bulkLock.readLock().unlock();
+        }
+    }
+
+    // подзадачу могли перенести в другой эпик, пока ждали блокировку, тогда полоса берется заново
+    private <T> T supplyLockedByEpicOf(Integer subTaskId, Supplier<T> action) {
+        bulkLock.readLock().lock();
+        try {
+            while (true) {
+                SubTask current = subTaskId == null ? null : getSubTaskMap().get(subTaskId);
+                Lock stripe = stripeFor(current == null ? null : current.getEpicId());
+                stripe.lock();
+                try {
+                    SubTask actual = subTaskId == null ? null : getSubTaskMap().get(subTaskId);
+                    if (actual == current) {
+                        return action.get();
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        } finally {
+            bulkLock.readLock().unlock();
+        }
+    }
+
+    private void runExclusive(Runnable action) {
+        supplyExclusive(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T supplyExclusive(Supplier<T> action) {
+        bulkLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            bulkLock.writeLock().unlock();
+        }
+    }
+}
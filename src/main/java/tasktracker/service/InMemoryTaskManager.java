@@ -1,38 +1,83 @@
 package tasktracker.service;
 
 import tasktracker.exeption.NotFoundException;
+import tasktracker.fileservice.TaskType;
 import tasktracker.history.HistoryManager;
 import tasktracker.model.Epic;
+import tasktracker.model.Progress;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
-
-import static tasktracker.model.Progress.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class InMemoryTaskManager implements TaskManager {
     private int idCounter = 0;
 
-    private final Map<Integer, Task> taskMap = new HashMap<>();
+    private final NavigableMap<Integer, Task> taskMap;
+
+    private final NavigableSet<Task> sortedTaskSet = new TreeSet<>(Task::compareByDate);
 
-    private final Set<Task> sortedTaskSet = new TreeSet<>(Task::compareByDate);
+    private final TimeIntervalIndex timeIndex = new TimeIntervalIndex();
 
-    private final Map<Integer, SubTask> subTaskMap = new HashMap<>();
+    private final NavigableMap<Integer, SubTask> subTaskMap;
 
-    private final Map<Integer, Epic> epicMap = new HashMap<>();
+    private final NavigableMap<Integer, Epic> epicMap;
 
     private final HistoryManager historyManager;
 
+    // снимки сущностей для чтения: создаются один раз после изменения и разделяются с историей
+    private final Map<Integer, Task> taskSnapshots = new ConcurrentHashMap<>();
+
+    private final Map<Integer, SubTask> subTaskSnapshots = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Epic> epicSnapshots = new ConcurrentHashMap<>();
+
+    // вторичный индекс по статусу для каждого типа сущностей
+    private final Map<TaskType, StatusIndex> statusIndexes = new EnumMap<>(TaskType.class);
+    // полнотекстовый индекс по name и description для каждого типа сущностей
+    private final Map<TaskType, SearchIndex> searchIndexes = new EnumMap<>(TaskType.class);
+    private final TaskEventBus eventBus = new TaskEventBus();
+    // события, отложенные deferEvents; null вне него
+    private List<Runnable> pendingEvents;
+
     public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+    }
+
+    // хранилища упорядочены по id, чтобы постраничная выдача шла через tailMap без сортировки
+    protected InMemoryTaskManager(HistoryManager historyManager,
+                                  NavigableMap<Integer, Task> taskMap,
+                                  NavigableMap<Integer, SubTask> subTaskMap,
+                                  NavigableMap<Integer, Epic> epicMap) {
         this.historyManager = historyManager;
+        this.taskMap = taskMap;
+        this.subTaskMap = subTaskMap;
+        this.epicMap = epicMap;
+        for (TaskType type : TaskType.values()) {
+            statusIndexes.put(type, new StatusIndex());
+            searchIndexes.put(type, new SearchIndex());
+        }
+    }
+
+    protected int nextId() {
+        return ++idCounter;
+    }
+
+    // следующий выданный id будет lastId + 1
+    protected void restoreIdSequence(int lastId) {
+        idCounter = lastId;
     }
 
     /**
      * Task
      */
     public boolean validateOverlapping(Task task) {
-        return sortedTaskSet.stream()
-                .anyMatch(existingTask -> existingTask.isOverlapping(task));
+        return timeIndex.isOverlapping(task);
     }
 
     @Override
@@ -40,39 +85,36 @@ public class InMemoryTaskManager implements TaskManager {
         if (task.getStartTime() == null) {
             return;
         }
-        if (validateOverlapping(task)) {
+        if (!scheduleNew(task)) {
             throw new IllegalArgumentException("Задачи пересекается по времени");
         }
-        if (task.getId() == null) {
-            task.setId(++idCounter);
-        }
-        sortedTaskSet.add(task);
         taskMap.put(task.getId(), task);
+        changed(TaskType.TASK, task.getId());
     }
 
     @Override
     public Task getTaskById(Integer id) {
-        if (id != null && taskMap.containsKey(id)) {
-            historyManager.add(new Task(taskMap.get(id)));
-            return new Task(taskMap.get(id));
-        } else {
+        Task snapshot = id == null ? null : taskSnapshots.computeIfAbsent(id, key -> {
+            Task task = taskMap.get(key);
+            return task == null ? null : new Task(task);
+        });
+        if (snapshot == null) {
             throw new NotFoundException("task not found with id = " + id);
         }
+        historyManager.add(snapshot);
+        return new Task(snapshot);
     }
 
     @Override
     public void updateTask(Task task) {
-        if (taskMap.containsKey(task.getId())) {
+        if (task.getId() != null && taskMap.containsKey(task.getId())) {
             Task oldTask = taskMap.get(task.getId());
-            taskMap.put(task.getId(), task);
-            sortedTaskSet.remove(oldTask);
-            if (validateOverlapping(task)) {
-                sortedTaskSet.add(oldTask);
+            if (!reschedule(oldTask, task)) {
                 throw new IllegalArgumentException("Задачи пересекается по времени");
-            } else {
-                sortedTaskSet.add(task);
-                System.out.println("Задача обновлена");
             }
+            taskMap.put(task.getId(), task);
+            changed(TaskType.TASK, task.getId());
+            System.out.println("Задача обновлена");
         } else {
             throw new IllegalArgumentException("task not found with id = " + task.getId());
         }
@@ -81,8 +123,9 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteTaskById(Integer id) {
         if (id != null && taskMap.containsKey(id)) {
-            sortedTaskSet.remove(taskMap.get(id));
+            removePrioritized(taskMap.get(id));
             taskMap.remove(id);
+            changed(TaskType.TASK, id);
             historyManager.remove(id);
         } else {
             throw new NotFoundException("task not found with id = " + id);
@@ -94,13 +137,22 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(taskMap.values());
     }
 
+    @Override
+    public List<Task> getTasks(Integer afterId, int limit) {
+        return page(taskMap, afterId, limit);
+    }
+
     @Override
     public void deleteAllTasks() {
         for (Task task : taskMap.values()) {
             historyManager.remove(task.getId());
-            sortedTaskSet.remove(task);
+            removePrioritized(task);
+            publish(TaskEvent.Kind.DELETED, TaskType.TASK, task.getId(), null);
         }
         taskMap.clear();
+        taskSnapshots.clear();
+        statusIndexes.get(TaskType.TASK).clear();
+        searchIndexes.get(TaskType.TASK).clear();
     }
 
     /**
@@ -108,27 +160,23 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public void addNewEpic(Epic epic) {
-        if (validateOverlapping(epic)) {
+        if (!scheduleNew(epic)) {
             throw new IllegalArgumentException("Эпики пересекается по времени");
         }
-        if (epic.getId() == null) {
-            epic.setId(++idCounter);
-        }
-        sortedTaskSet.add(epic);
         epicMap.put(epic.getId(), epic);
+        changed(TaskType.EPIC, epic.getId());
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        if (epicMap.containsKey(epic.getId())) {
+        if (epic.getId() != null && epicMap.containsKey(epic.getId())) {
             Epic oldEpic = epicMap.get(epic.getId());
             epicMap.put(epic.getId(), epic);
-            sortedTaskSet.remove(oldEpic);
-            if (validateOverlapping(epic)) {
-                sortedTaskSet.add(oldEpic);
+            boolean rescheduled = reschedule(oldEpic, epic);
+            changed(TaskType.EPIC, epic.getId());
+            if (!rescheduled) {
                 System.out.println("Epic пересекается с существующими id = " + epic.getId());
             } else {
-                sortedTaskSet.add(epic);
                 System.out.println("Эпик обновлен");
             }
         } else {
@@ -141,26 +189,34 @@ public class InMemoryTaskManager implements TaskManager {
         if (historyManager != null) {
             for (Epic epic : epicMap.values()) {
                 historyManager.remove(epic.getId());
-                sortedTaskSet.remove(epic);
+                removePrioritized(epic);
             }
         }
         deleteAllSubTasks();
+        for (Integer id : epicMap.keySet()) {
+            publish(TaskEvent.Kind.DELETED, TaskType.EPIC, id, null);
+        }
         epicMap.clear();
+        epicSnapshots.clear();
+        statusIndexes.get(TaskType.EPIC).clear();
+        searchIndexes.get(TaskType.EPIC).clear();
     }
 
     @Override
     public void deleteEpicById(Integer id) {
         if (id != null && epicMap.containsKey(id)) {
             Epic epic = epicMap.remove(id);
-            sortedTaskSet.remove(epic);
+            changed(TaskType.EPIC, id);
+            removePrioritized(epic);
             if (historyManager != null) {
                 historyManager.remove(id);
             }
             for (SubTask subtaskId : epic.getSubTaskList()) {
                 subTaskMap.remove(subtaskId.getId());
-                sortedTaskSet.remove(subtaskId);
+                changed(TaskType.SUBTASK, subtaskId.getId());
+                removePrioritized(subtaskId);
             }
-            epic.getSubTaskList().clear();
+            epic.clearSubTasks();
         } else {
             throw new NotFoundException("epic not found with id = " + id);
         }
@@ -171,33 +227,33 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(epicMap.values());
     }
 
+    @Override
+    public List<Epic> getEpics(Integer afterId, int limit) {
+        return page(epicMap, afterId, limit);
+    }
+
     @Override
     public Epic getEpicById(Integer id) {
-        if (id != null && epicMap.containsKey(id)) {
-            historyManager.add(new Epic(epicMap.get(id)));
-            return new Epic(epicMap.get(id));
-        } else {
+        Epic snapshot = id == null ? null : epicSnapshots.computeIfAbsent(id, key -> {
+            Epic epic = epicMap.get(key);
+            return epic == null ? null : new Epic(epic);
+        });
+        if (snapshot == null) {
             throw new NotFoundException("epic not found with id = " + id);
         }
+        historyManager.add(snapshot);
+        return new Epic(snapshot);
     }
 
+    // событие - только если статус действительно сменился; снимок сбрасывается всегда: в нем список подзадач
     @Override
     public void updateEpicStatus(Epic epic) {
-        int subtasksNewStatusCounter = 0;
-        int subtasksDoneStatusCounter = 0;
-        for (SubTask subtask : epic.getSubTaskList()) {
-            if (NEW == subtask.getStatus()) {
-                subtasksNewStatusCounter++;
-            } else if (DONE == subtask.getStatus()) {
-                subtasksDoneStatusCounter++;
-            } else break;
-        }
-        if (epic.getSubTaskList().isEmpty() || subtasksNewStatusCounter == epic.getSubTaskList().size()) {
-            epic.setStatus(NEW);
-        } else if (subtasksDoneStatusCounter == epic.getSubTaskList().size()) {
-            epic.setStatus(DONE);
+        Progress previous = epic.getStatus();
+        epic.setStatus(epic.getAggregatedStatus());
+        if (epic.getStatus() != previous) {
+            changed(TaskType.EPIC, epic.getId());
         } else {
-            epic.setStatus(IN_PROGRESS);
+            epicSnapshots.remove(epic.getId());
         }
     }
 
@@ -206,25 +262,18 @@ public class InMemoryTaskManager implements TaskManager {
      * */
     @Override
     public void addNewSubTask(SubTask subTask) {
-        if (epicMap.containsKey(subTask.getEpicId())) {
-
-            if (validateOverlapping(subTask)) {
+        if (hasEpic(subTask.getEpicId())) {
+            if (subTask.getStartTime() == null) {
+                if (subTask.getId() == null) {
+                    subTask.setId(nextId());
+                }
+            } else if (!scheduleNew(subTask)) {
                 throw new IllegalArgumentException("Подзадачи пересекается по времени");
             }
-            if (subTask.getStartTime() != null) {
-                sortedTaskSet.add(subTask);
-            }
-            if (subTask.getId() == null) {
-                subTask.setId(++idCounter);
-            }
             subTaskMap.put(subTask.getId(), subTask);
+            changed(TaskType.SUBTASK, subTask.getId());
             Epic epic = epicMap.get(subTask.getEpicId());
-            epic.addSubTask(subTask);
-            sortedTaskSet.remove(epic);
-            if (epic.getStartTime() != null) {
-                sortedTaskSet.add(epic);
-            }
-            updateEpicStatus(epic);
+            changeEpic(epic, () -> epic.addSubTask(subTask));
         } else {
             throw new NotFoundException("subTask cannot add without epicId not found epicId = " + subTask.getEpicId());
         }
@@ -232,48 +281,63 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public SubTask getSubTaskById(Integer id) {
-        if (id != null && subTaskMap.containsKey(id)) {
-            historyManager.add(new SubTask(subTaskMap.get(id)));
-            return new SubTask(subTaskMap.get(id));
-        } else {
+        SubTask snapshot = id == null ? null : subTaskSnapshots.computeIfAbsent(id, key -> {
+            SubTask subTask = subTaskMap.get(key);
+            return subTask == null ? null : new SubTask(subTask);
+        });
+        if (snapshot == null) {
             throw new NotFoundException("subtask not found with id = " + id);
         }
+        historyManager.add(snapshot);
+        return new SubTask(snapshot);
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
         Integer subTaskId = subTask.getId();
+        if (subTaskId == null) {
+            throw new NotFoundException("subtask not found with id = null");
+        }
         if (subTaskMap.containsKey(subTaskId)) {
             SubTask oldSubtask = subTaskMap.get(subTaskId);
-            sortedTaskSet.remove(oldSubtask);
-            if (validateOverlapping(subTask)) {
-                sortedTaskSet.add(oldSubtask);
+            if (!hasEpic(subTask.getEpicId())) {
+                throw new NotFoundException("epic not found with id = " + subTask.getEpicId());
+            }
+            if (!reschedule(oldSubtask, subTask)) {
                 throw new IllegalArgumentException("Подзадачи пересекается по времени");
             } else {
-                sortedTaskSet.add(subTask);
-                Epic oldEpic = epicMap.get(oldSubtask.getEpicId());
-                Epic newEpic = epicMap.get(subTask.getEpicId());
-                oldEpic.getSubTaskList().remove(oldSubtask);
-                newEpic.addSubTask(subTask);
-                updateEpicStatus(newEpic);
+                // эпик, у которого подзадача осталась, пересчитывается и попадает в события один раз
+                Set<Integer> epicIds = new LinkedHashSet<>(List.of(oldSubtask.getEpicId(), subTask.getEpicId()));
+                for (Integer epicId : epicIds) {
+                    Epic epic = epicMap.get(epicId);
+                    changeEpic(epic, () -> {
+                        if (epicId.equals(oldSubtask.getEpicId())) {
+                            epic.removeSubTask(oldSubtask);
+                        }
+                        if (epicId.equals(subTask.getEpicId())) {
+                            epic.addSubTask(subTask);
+                        }
+                    });
+                }
                 System.out.println("Подзадача обновлена");
             }
         }
         subTaskMap.put(subTaskId, subTask);
+        changed(TaskType.SUBTASK, subTaskId);
     }
 
     @Override
     public void deleteSubTaskById(Integer id) {
         if (id != null && subTaskMap.containsKey(id)) {
             SubTask subtask = subTaskMap.remove(id);
+            changed(TaskType.SUBTASK, id);
             historyManager.remove(id);
-            sortedTaskSet.remove(subtask);
+            removePrioritized(subtask);
             if (subtask == null) {
                 return;
             }
             Epic epic = epicMap.get(subtask.getEpicId());
-            epic.getSubTaskList().remove(subtask);
-            updateEpicStatus(epic);
+            changeEpic(epic, () -> epic.removeSubTask(subtask));
         } else {
             throw new NotFoundException("subtask not found with id = " + id);
         }
@@ -285,22 +349,42 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(subTaskMap.values());
     }
 
+    @Override
+    public List<SubTask> getSubTasks(Integer afterId, int limit) {
+        return page(subTaskMap, afterId, limit);
+    }
+
     @Override
     public void deleteAllSubTasks() {
         for (Epic epic : epicMap.values()) {
-            epic.getSubTaskList().clear();
-            updateEpicStatus(epic);
+            changeEpic(epic, epic::clearSubTasks);
         }
         for (SubTask subTask : subTaskMap.values()) {
             historyManager.remove(subTask.getId());
-            sortedTaskSet.remove(subTask);
+            removePrioritized(subTask);
+            publish(TaskEvent.Kind.DELETED, TaskType.SUBTASK, subTask.getId(), null);
         }
         subTaskMap.clear();
+        subTaskSnapshots.clear();
+        statusIndexes.get(TaskType.SUBTASK).clear();
+        searchIndexes.get(TaskType.SUBTASK).clear();
     }
 
+    // в истории лежат те же снимки, что отдает get*ById, поэтому наружу уходят их копии
     @Override
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        List<Task> history = historyManager.getHistory();
+        List<Task> result = new ArrayList<>(history.size());
+        for (Task task : history) {
+            if (task instanceof Epic epic) {
+                result.add(new Epic(epic));
+            } else if (task instanceof SubTask subTask) {
+                result.add(new SubTask(subTask));
+            } else {
+                result.add(new Task(task));
+            }
+        }
+        return result;
     }
 
     @Override
@@ -308,15 +392,671 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(sortedTaskSet);
     }
 
-    public Map<Integer, Task> getTaskMap() {
+    @Override
+    public List<Task> getPrioritizedTasks(Task after, int limit) {
+        checkLimit(limit);
+        return take(after == null ? sortedTaskSet : sortedTaskSet.tailSet(after, false), limit);
+    }
+
+    /**
+     * Задачи с началом в [from, to) по порядку расписания: subSet по границам-заглушкам,
+     * которые идут раньше любой задачи с тем же startTime, - O(log n + k).
+     * null вместо from или to - диапазон открыт с этой стороны; задачи без startTime не попадают никогда.
+     */
+    @Override
+    public List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from позже to: " + from + " > " + to);
+        }
+        return new ArrayList<>(sortedTaskSet.subSet(bound(from == null ? LocalDateTime.MIN : from), true,
+                bound(to), false));
+    }
+
+    /**
+     * Самый ранний момент не раньше notBefore, с которого duration помещается в расписание без пересечений.
+     * Интервалы, начавшиеся до notBefore, учитываются одним спуском по индексу, дальше задачи обходятся
+     * по порядку начала до первого подходящего промежутка - O(log n + просмотренные задачи).
+     * Если промежутка нет, возвращается конец последней задачи.
+     */
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore) {
+        if (duration == null || duration.isNegative() || notBefore == null) {
+            throw new IllegalArgumentException("Нужны неотрицательная длительность и notBefore");
+        }
+        LocalDateTime candidate = notBefore;
+        LocalDateTime busyUntil = timeIndex.maxEndBefore(notBefore);
+        if (busyUntil != null && busyUntil.isAfter(candidate)) {
+            candidate = busyUntil;
+        }
+        for (Task task : sortedTaskSet.tailSet(bound(notBefore), true)) {
+            if (task.getStartTime() == null || !candidate.plus(duration).isAfter(task.getStartTime())) {
+                break;
+            }
+            LocalDateTime end = TimeIntervalIndex.endOf(task);
+            if (end.isAfter(candidate)) {
+                candidate = end;
+            }
+        }
+        return candidate;
+    }
+
+    @Override
+    public void scheduleNewTask(Task task, LocalDateTime notBefore) {
+        task.setStartTime(findFreeSlot(durationOf(task), notBefore));
+        addNewTask(task);
+    }
+
+    @Override
+    public void scheduleNewSubTask(SubTask subTask, LocalDateTime notBefore) {
+        if (!hasEpic(subTask.getEpicId())) {
+            throw new NotFoundException("subTask cannot add without epicId not found epicId = " + subTask.getEpicId());
+        }
+        subTask.setStartTime(findFreeSlot(durationOf(subTask), notBefore));
+        addNewSubTask(subTask);
+    }
+
+    private static Duration durationOf(Task task) {
+        return task.getDuration() == null ? Duration.ZERO : task.getDuration();
+    }
+
+    // заглушка расписания, которая идет раньше любой задачи с тем же startTime; null - после всех задач
+    private static Task bound(LocalDateTime startTime) {
+        return new Task(Integer.MIN_VALUE, null, null, null, null, startTime);
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskType type, Progress status) {
+        return collect(type, statusIndexes.get(type).ids(status), Integer.MAX_VALUE);
+    }
+
+    // курсор - tailSet индекса статуса, поэтому страница стоит O(log n + limit)
+    @Override
+    public List<Task> getByStatus(TaskType type, Progress status, Integer afterId, int limit) {
+        checkLimit(limit);
+        NavigableSet<Integer> ids = statusIndexes.get(type).ids(status);
+        return collect(type, afterId == null ? ids : ids.tailSet(afterId, false), limit);
+    }
+
+    private List<Task> collect(TaskType type, Collection<Integer> ids, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, 256));
+        for (Integer id : ids) {
+            if (result.size() == limit) {
+                break;
+            }
+            Task task = find(type, id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Progress status) {
+        return statusIndexes.get(type).count(status);
+    }
+
+    /**
+     * Поиск по словам name и description среди всех типов сущностей: каждое слово запроса должно совпасть
+     * со словом сущности или его началом. Порядок - по убыванию веса, при равенстве по id.
+     * Лучшие limit совпадений отбираются кучей, поэтому все совпадения целиком не сортируются.
+     */
+    @Override
+    public List<Task> search(String query, int limit) {
+        checkLimit(limit);
+        List<String> terms = SearchIndex.tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // в вершине кучи худшее из отобранных совпадений
+        PriorityQueue<Hit> top = new PriorityQueue<>(Hit.RANKING.reversed());
+        for (TaskType type : TaskType.values()) {
+            searchIndexes.get(type).search(terms).forEach((id, score) -> {
+                Hit hit = new Hit(type, id, score);
+                if (top.size() < limit) {
+                    top.add(hit);
+                } else if (Hit.RANKING.compare(hit, top.peek()) < 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            });
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Hit.RANKING);
+        List<Task> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            Task task = find(hit.type, hit.id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private static final class Hit {
+        private static final Comparator<Hit> RANKING = Comparator.<Hit>comparingInt(hit -> -hit.score)
+                .thenComparingInt(hit -> hit.id);
+
+        private final TaskType type;
+        private final int id;
+        private final int score;
+
+        Hit(TaskType type, int id, int score) {
+            this.type = type;
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Каждая операция проверяется по текущему индексу интервалов и сразу применяется, поэтому следующие
+     * операции видят результат предыдущих. Для каждой примененной операции запоминается обратная;
+     * при ошибке они выполняются в обратном порядке. Из истории удаленные сущности убираются только
+     * после успеха всего пакета. В отличие от одиночных методов, пакет сохраняет задачи без startTime
+     * и переносит подзадачи обновляемого эпика в новый объект.
+     */
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        Deque<Runnable> undo = new ArrayDeque<>();
+        List<Integer> ids = new ArrayList<>(operations.size());
+        List<Integer> deleted = new ArrayList<>();
+        return deferEvents(() -> {
+            try {
+                for (Operation operation : operations) {
+                    ids.add(apply(operation, undo, deleted));
+                }
+            } catch (RuntimeException e) {
+                while (!undo.isEmpty()) {
+                    undo.pop().run();
+                }
+                throw e;
+            }
+            for (Integer id : deleted) {
+                historyManager.remove(id);
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * События изменений внутри action рассылаются только после его успешного завершения,
+     * при исключении выбрасываются. Вложенный вызов пишет в буфер внешнего.
+     * Вызывающий отвечает за то, чтобы другие потоки не меняли менеджер, пока action выполняется.
+     */
+    protected <T> T deferEvents(Supplier<T> action) {
+        if (pendingEvents != null) {
+            return action.get();
+        }
+        List<Runnable> events = new ArrayList<>();
+        pendingEvents = events;
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            pendingEvents = null;
+        }
+        events.forEach(Runnable::run);
+        return result;
+    }
+
+    private Integer apply(Operation operation, Deque<Runnable> undo, List<Integer> deleted) {
+        Task task = operation.getTask();
+        switch (operation.getKind()) {
+            case CREATE -> {
+                if (task.getId() == null) {
+                    task.setId(nextId());
+                } else if (find(operation.getType(), task.getId()) != null) {
+                    throw new IllegalArgumentException("Сущность с id = " + task.getId() + " уже существует");
+                }
+                checkEpicOf(task);
+                if (!fits(null, task)) {
+                    throw new IllegalArgumentException("Задачи пересекается по времени, id = " + task.getId());
+                }
+                link(task);
+                undo.push(() -> unlink(task));
+            }
+            case UPDATE -> {
+                Task old = require(operation.getType(), task.getId());
+                checkEpicOf(task);
+                if (!fits(old, task)) {
+                    throw new IllegalArgumentException("Задачи пересекается по времени, id = " + task.getId());
+                }
+                unlink(old);
+                if (task instanceof Epic epic && !(epic.getSubTaskList().isEmpty()
+                        && ((Epic) old).getSubTaskList().isEmpty())) {
+                    epic.clearSubTasks();
+                    ((Epic) old).getSubTaskList().forEach(epic::addSubTask);
+                    if (!epic.getSubTaskList().isEmpty()) {
+                        epic.setStatus(epic.getAggregatedStatus());
+                    }
+                }
+                link(task);
+                undo.push(() -> {
+                    unlink(task);
+                    link(old);
+                });
+            }
+            case DELETE -> {
+                Task old = require(operation.getType(), operation.getId());
+                List<SubTask> subTasks = old instanceof Epic epic ? new ArrayList<>(epic.getSubTaskList()) : List.of();
+                // с конца, чтобы откат вернул подзадачи эпику в прежнем порядке
+                for (int i = subTasks.size() - 1; i >= 0; i--) {
+                    unlink(subTasks.get(i));
+                    deleted.add(subTasks.get(i).getId());
+                }
+                unlink(old);
+                deleted.add(old.getId());
+                undo.push(() -> {
+                    link(old);
+                    subTasks.forEach(this::link);
+                });
+                return old.getId();
+            }
+        }
+        return task.getId();
+    }
+
+    private Task find(TaskType type, Integer id) {
+        if (id == null) {
+            return null;
+        }
+        return switch (type) {
+            case TASK -> taskMap.get(id);
+            case EPIC -> epicMap.get(id);
+            case SUBTASK -> subTaskMap.get(id);
+        };
+    }
+
+    // навигируемые хранилища не принимают null-ключ, поэтому id проверяется до обращения к ним
+    private boolean hasEpic(Integer epicId) {
+        return epicId != null && epicMap.containsKey(epicId);
+    }
+
+    private Task require(TaskType type, Integer id) {
+        Task task = find(type, id);
+        if (task == null) {
+            throw new NotFoundException(type.name().toLowerCase() + " not found with id = " + id);
+        }
+        return task;
+    }
+
+    private void checkEpicOf(Task task) {
+        if (task instanceof SubTask subTask && !hasEpic(subTask.getEpicId())) {
+            throw new NotFoundException("epic not found with id = " + subTask.getEpicId());
+        }
+    }
+
+    // новый эпик проверяется, как в addNewEpic; обновленный - нет: как и в updateEpic, его время
+    // складывается из подзадач
+    private boolean fits(Task old, Task task) {
+        if (task instanceof Epic && old != null || task.getStartTime() == null) {
+            return true;
+        }
+        boolean scheduled = old != null && old.getStartTime() != null;
+        if (scheduled) {
+            removePrioritized(old);
+        }
+        boolean overlapping = validateOverlapping(task);
+        if (scheduled) {
+            addPrioritized(old);
+        }
+        return !overlapping;
+    }
+
+    // кладет сущность в хранилище и расписание без проверок; подзадача привязывается к своему эпику
+    private void link(Task task) {
+        if (task instanceof Epic epic) {
+            epicMap.put(epic.getId(), epic);
+            changed(TaskType.EPIC, epic.getId());
+        } else if (task instanceof SubTask subTask) {
+            subTaskMap.put(subTask.getId(), subTask);
+            changed(TaskType.SUBTASK, subTask.getId());
+        } else {
+            taskMap.put(task.getId(), task);
+            changed(TaskType.TASK, task.getId());
+        }
+        if (task.getStartTime() != null) {
+            addPrioritized(task);
+        }
+        if (task instanceof SubTask subTask) {
+            Epic epic = epicMap.get(subTask.getEpicId());
+            changeEpic(epic, () -> epic.addSubTask(subTask));
+        }
+    }
+
+    private void unlink(Task task) {
+        if (task instanceof Epic) {
+            epicMap.remove(task.getId());
+            changed(TaskType.EPIC, task.getId());
+        } else if (task instanceof SubTask) {
+            subTaskMap.remove(task.getId());
+            changed(TaskType.SUBTASK, task.getId());
+        } else {
+            taskMap.remove(task.getId());
+            changed(TaskType.TASK, task.getId());
+        }
+        if (task.getStartTime() != null) {
+            removePrioritized(task);
+        }
+        if (task instanceof SubTask subTask) {
+            Epic epic = epicMap.get(subTask.getEpicId());
+            if (epic != null) {
+                changeEpic(epic, () -> epic.removeSubTask(subTask));
+            }
+        }
+    }
+
+    private static <T extends Task> List<T> page(NavigableMap<Integer, T> map, Integer afterId, int limit) {
+        checkLimit(limit);
+        return take(afterId == null ? map.values() : map.tailMap(afterId, false).values(), limit);
+    }
+
+    private static <T extends Task> List<T> take(Collection<T> source, int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, 256));
+        for (T task : source) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(task);
+        }
+        return result;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть больше 0: " + limit);
+        }
+    }
+
+    // вызывается после каждого изменения сущности: сбрасывает ее снимок, обновляет индексы статусов и поиска
+    // и сообщает подписчикам; был ли id раньше, знает индекс поиска - в нем есть каждая сущность
+    private void changed(TaskType type, Integer id) {
+        if (id == null) {
+            return;
+        }
+        Map<Integer, ? extends Task> snapshots = switch (type) {
+            case TASK -> taskSnapshots;
+            case EPIC -> epicSnapshots;
+            case SUBTASK -> subTaskSnapshots;
+        };
+        snapshots.remove(id);
+        Task current = find(type, id);
+        statusIndexes.get(type).set(id, current == null ? null : current.getStatus());
+        boolean existed = searchIndexes.get(type).set(id, current);
+        if (current != null) {
+            publish(existed ? TaskEvent.Kind.UPDATED : TaskEvent.Kind.CREATED, type, id, current);
+        } else if (existed) {
+            publish(TaskEvent.Kind.DELETED, type, id, null);
+        }
+    }
+
+    // внутри deferEvents события откладываются до его успешного конца, при ошибке выбрасываются
+    private void publish(TaskEvent.Kind kind, TaskType type, Integer id, Task current) {
+        if (!eventBus.hasSubscribers()) {
+            return;
+        }
+        Task copy = current == null ? null : switch (type) {
+            case TASK -> new Task(current);
+            case EPIC -> new Epic((Epic) current);
+            case SUBTASK -> new SubTask((SubTask) current);
+        };
+        if (pendingEvents != null) {
+            pendingEvents.add(() -> eventBus.publish(kind, type, id, copy));
+        } else {
+            eventBus.publish(kind, type, id, copy);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<TaskEvent> listener) {
+        eventBus.subscribe(listener);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<TaskEvent> listener) {
+        eventBus.unsubscribe(listener);
+    }
+
+    protected void addPrioritized(Task task) {
+        sortedTaskSet.add(task);
+        timeIndex.add(task);
+    }
+
+    protected void removePrioritized(Task task) {
+        sortedTaskSet.remove(task);
+        timeIndex.remove(task);
+    }
+
+    // id выдается только задаче, которая встала в расписание: отклоненная не тратит id и не меняется
+    protected boolean scheduleNew(Task task) {
+        if (validateOverlapping(task)) {
+            return false;
+        }
+        if (task.getId() == null) {
+            task.setId(nextId());
+        }
+        addPrioritized(task);
+        return true;
+    }
+
+    // атомарно заменяет oldTask на newTask в расписании; при пересечении возвращает старую задачу на место
+    protected boolean reschedule(Task oldTask, Task newTask) {
+        if (oldTask != null) {
+            removePrioritized(oldTask);
+        }
+        if (validateOverlapping(newTask)) {
+            if (oldTask != null) {
+                addPrioritized(oldTask);
+            }
+            return false;
+        }
+        addPrioritized(newTask);
+        return true;
+    }
+
+    // время эпика зависит от подзадач, поэтому эпик снимается с расписания на время изменения.
+    // Подписчики получают эпик, только если изменились его статус или время
+    private void changeEpic(Epic epic, Runnable change) {
+        Progress status = epic.getStatus();
+        LocalDateTime startTime = epic.getStartTime();
+        Duration duration = epic.getDuration();
+        removePrioritized(epic);
+        change.run();
+        updateEpicStatus(epic);
+        if (epic.getStatus() == status && !(Objects.equals(startTime, epic.getStartTime())
+                && Objects.equals(duration, epic.getDuration()))) {
+            changed(TaskType.EPIC, epic.getId());
+        }
+        if (epic.getStartTime() != null) {
+            addPrioritized(epic);
+        }
+    }
+
+    /**
+     * Заменяет содержимое менеджера набором сущностей за один проход: сущность с тем же типом и id,
+     * идущая позже, перекрывает предыдущую. Затем восстанавливаются связи эпиков, расписание и счетчик id.
+     */
+    public void bulkLoad(Collection<? extends Task> entities) {
+        for (Integer id : taskMap.keySet()) {
+            historyManager.remove(id);
+        }
+        for (Integer id : epicMap.keySet()) {
+            historyManager.remove(id);
+        }
+        for (Integer id : subTaskMap.keySet()) {
+            historyManager.remove(id);
+        }
+        taskMap.clear();
+        epicMap.clear();
+        subTaskMap.clear();
+        for (Task entity : entities) {
+            if (entity instanceof Epic epic) {
+                epicMap.put(epic.getId(), epic);
+            } else if (entity instanceof SubTask subTask) {
+                subTaskMap.put(subTask.getId(), subTask);
+            } else {
+                taskMap.put(entity.getId(), entity);
+            }
+        }
+        rebuildIndexes();
+    }
+
+    /**
+     * Пересобирает производное состояние по содержимому хранилищ: подзадачи привязываются к эпикам
+     * (статус и время эпика пересчитываются только у эпиков с подзадачами), расписание и индекс интервалов
+     * строятся из одного отсортированного списка без поэлементных вставок, счетчик id продолжается
+     * после максимального id. Пересечения между загруженными задачами не проверяются.
+     */
+    protected void rebuildIndexes() {
+        taskSnapshots.clear();
+        subTaskSnapshots.clear();
+        epicSnapshots.clear();
+        statusIndexes.values().forEach(StatusIndex::clear);
+        searchIndexes.values().forEach(SearchIndex::clear);
+
+        Map<Integer, List<SubTask>> subTasksByEpic = new HashMap<>();
+        for (SubTask subTask : subTaskMap.values()) {
+            if (hasEpic(subTask.getEpicId())) {
+                subTasksByEpic.computeIfAbsent(subTask.getEpicId(), key -> new ArrayList<>()).add(subTask);
+            }
+        }
+        for (Epic epic : epicMap.values()) {
+            List<SubTask> subTasks = subTasksByEpic.get(epic.getId());
+            if (subTasks == null && epic.getSubTaskList().isEmpty()) {
+                continue;
+            }
+            epic.clearSubTasks();
+            if (subTasks != null) {
+                subTasks.forEach(epic::addSubTask);
+            }
+            epic.setStatus(epic.getAggregatedStatus());
+        }
+
+        indexEntities(TaskType.TASK, taskMap.values());
+        indexEntities(TaskType.EPIC, epicMap.values());
+        indexEntities(TaskType.SUBTASK, subTaskMap.values());
+
+        List<Task> scheduled = new ArrayList<>(taskMap.size() + subTaskMap.size() + epicMap.size());
+        addScheduled(scheduled, taskMap.values());
+        addScheduled(scheduled, subTaskMap.values());
+        addScheduled(scheduled, epicMap.values());
+        Comparator<? super Task> order = sortedTaskSet.comparator();
+        scheduled.sort(order);
+        // как и TreeSet.add, из равных по компаратору остается первая задача
+        int unique = 0;
+        for (Task task : scheduled) {
+            if (unique == 0 || order.compare(scheduled.get(unique - 1), task) != 0) {
+                scheduled.set(unique++, task);
+            }
+        }
+        scheduled.subList(unique, scheduled.size()).clear();
+        sortedTaskSet.clear();
+        sortedTaskSet.addAll(new SortedListView(scheduled, order));
+        timeIndex.buildFromSorted(scheduled);
+
+        int lastId = 0;
+        for (NavigableMap<Integer, ? extends Task> map : List.of(taskMap, subTaskMap, epicMap)) {
+            if (!map.isEmpty()) {
+                lastId = Math.max(lastId, map.lastKey());
+            }
+        }
+        restoreIdSequence(lastId);
+    }
+
+    private void indexEntities(TaskType type, Collection<? extends Task> entities) {
+        StatusIndex index = statusIndexes.get(type);
+        SearchIndex search = searchIndexes.get(type);
+        for (Task entity : entities) {
+            index.set(entity.getId(), entity.getStatus());
+            search.set(entity.getId(), entity);
+        }
+    }
+
+    private static void addScheduled(List<Task> scheduled, Collection<? extends Task> tasks) {
+        for (Task task : tasks) {
+            if (task.getStartTime() != null) {
+                scheduled.add(task);
+            }
+        }
+    }
+
+    public NavigableMap<Integer, Task> getTaskMap() {
         return taskMap;
     }
 
-    public Map<Integer, SubTask> getSubTaskMap() {
+    public NavigableMap<Integer, SubTask> getSubTaskMap() {
         return subTaskMap;
     }
 
-    public Map<Integer, Epic> getEpicMap() {
+    public NavigableMap<Integer, Epic> getEpicMap() {
         return epicMap;
     }
+
+    // отсортированный список под видом SortedSet с тем же компаратором: так TreeSet.addAll
+    // в пустое множество строит дерево за O(n) вместо n вставок по O(log n)
+    private static final class SortedListView extends AbstractSet<Task> implements SortedSet<Task> {
+        private final List<Task> sorted;
+        private final Comparator<? super Task> comparator;
+
+        SortedListView(List<Task> sorted, Comparator<? super Task> comparator) {
+            this.sorted = sorted;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return sorted.iterator();
+        }
+
+        @Override
+        public int size() {
+            return sorted.size();
+        }
+
+        @Override
+        public Comparator<? super Task> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public Task first() {
+            if (sorted.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return sorted.get(0);
+        }
+
+        @Override
+        public Task last() {
+            if (sorted.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return sorted.get(sorted.size() - 1);
+        }
+
+        // поддиапазоны - представления того же списка, границы ищутся двоичным поиском
+        @Override
+        public SortedSet<Task> subSet(Task fromElement, Task toElement) {
+            if (comparator.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("fromElement больше toElement");
+            }
+            return new SortedListView(sorted.subList(indexOf(fromElement), indexOf(toElement)), comparator);
+        }
+
+        @Override
+        public SortedSet<Task> headSet(Task toElement) {
+            return new SortedListView(sorted.subList(0, indexOf(toElement)), comparator);
+        }
+
+        @Override
+        public SortedSet<Task> tailSet(Task fromElement) {
+            return new SortedListView(sorted.subList(indexOf(fromElement), sorted.size()), comparator);
+        }
+
+        // индекс первого элемента, не меньшего element
+        private int indexOf(Task element) {
+            int index = Collections.binarySearch(sorted, element, comparator);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
 }
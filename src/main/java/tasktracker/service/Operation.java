@@ -0,0 +1,68 @@
+package tasktracker.service;
+
+import tasktracker.fileservice.TaskType;
+import tasktracker.model.Epic;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+
+/**
+ * Одна операция пакета для TaskManager.applyBatch: создание, обновление или удаление сущности.
+ * Тип сущности при создании и обновлении определяется по классу задачи.
+ */
+public final class Operation {
+    public enum Kind {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private final Kind kind;
+    private final TaskType type;
+    private final Task task;
+    private final Integer id;
+
+    private Operation(Kind kind, TaskType type, Task task, Integer id) {
+        this.kind = kind;
+        this.type = type;
+        this.task = task;
+        this.id = id;
+    }
+
+    public static Operation create(Task task) {
+        return new Operation(Kind.CREATE, typeOf(task), task, null);
+    }
+
+    public static Operation update(Task task) {
+        return new Operation(Kind.UPDATE, typeOf(task), task, task.getId());
+    }
+
+    public static Operation delete(TaskType type, Integer id) {
+        return new Operation(Kind.DELETE, type, null, id);
+    }
+
+    public static TaskType typeOf(Task task) {
+        if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        if (task instanceof SubTask) {
+            return TaskType.SUBTASK;
+        }
+        return TaskType.TASK;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
@@ -0,0 +1,199 @@
+package tasktracker.service;
+
+import tasktracker.model.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по словам name и description сущностей одного типа: слово -> id -> вес.
+ * Слова лежат в отсортированном словаре, поэтому все слова с префиксом - один subMap за O(log w).
+ * Вес слова - число вхождений, вхождение в name весит NAME_WEIGHT.
+ * Чтение и запись разделены ReadWriteLock: поиск идет параллельно, обновление одного id заменяет его слова целиком.
+ */
+final class SearchIndex {
+    private static final int NAME_WEIGHT = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    // task == null - сущность удалена; если name и description не менялись, индекс не трогается.
+    // Возвращает, был ли id в индексе до вызова
+    boolean set(Integer id, Task task) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.get(id);
+            if (task != null && previous != null && Objects.equals(previous.name, task.getName())
+                    && Objects.equals(previous.description, task.getDescription())) {
+                return true;
+            }
+            if (previous != null) {
+                documents.remove(id);
+                for (String token : previous.weights.keySet()) {
+                    Map<Integer, Integer> ids = postings.get(token);
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(token);
+                    }
+                }
+            }
+            if (task == null) {
+                return previous != null;
+            }
+            Map<String, Integer> weights = new HashMap<>();
+            for (String token : tokenize(task.getName())) {
+                weights.merge(token, NAME_WEIGHT, Integer::sum);
+            }
+            for (String token : tokenize(task.getDescription())) {
+                weights.merge(token, 1, Integer::sum);
+            }
+            documents.put(id, new Document(task.getName(), task.getDescription(), weights));
+            weights.forEach((token, weight) ->
+                    postings.computeIfAbsent(token, key -> new HashMap<>()).put(id, weight));
+            return previous != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * id, в которых каждый из terms встречается как слово или начало слова, с суммарным весом.
+     * Точное совпадение слова весит вдвое больше префиксного.
+     * Слова запроса обрабатываются от самого редкого: его списки id обходятся целиком, а для остальных слов
+     * либо проверяются уже найденные id, либо обходятся списки - что дешевле. Поэтому частое слово
+     * в запросе вместе с редким не заставляет перебирать все задачи.
+     */
+    Map<Integer, Integer> search(List<String> terms) {
+        lock.readLock().lock();
+        try {
+            List<Term> matched = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Term match = new Term(term, postings.subMap(term, true, term + Character.MAX_VALUE, false));
+                if (match.size == 0) {
+                    return Map.of();
+                }
+                matched.add(match);
+            }
+            matched.sort(Comparator.comparingLong(term -> term.size));
+            Map<Integer, Integer> result = null;
+            for (Term term : matched) {
+                result = result == null ? term.scan(null)
+                        : (long) result.size() * term.tokens.size() < term.size ? term.probe(result) : term.scan(result);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result == null ? Map.of() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // слова - непрерывные последовательности букв и цифр в нижнем регистре
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // слова словаря, начинающиеся с term, и суммарная длина их списков id
+    private static final class Term {
+        private final String term;
+        private final NavigableMap<String, Map<Integer, Integer>> tokens;
+        private final long size;
+
+        Term(String term, NavigableMap<String, Map<Integer, Integer>> tokens) {
+            this.term = term;
+            this.tokens = tokens;
+            long total = 0;
+            for (Map<Integer, Integer> ids : tokens.values()) {
+                total += ids.size();
+            }
+            this.size = total;
+        }
+
+        // обход списков id; previous != null - оставить только id из previous и прибавить их вес
+        Map<Integer, Integer> scan(Map<Integer, Integer> previous) {
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (Map.Entry<String, Map<Integer, Integer>> entry : tokens.entrySet()) {
+                int factor = factor(entry.getKey());
+                for (Map.Entry<Integer, Integer> posting : entry.getValue().entrySet()) {
+                    Integer id = posting.getKey();
+                    if (previous == null || previous.containsKey(id)) {
+                        scores.merge(id, posting.getValue() * factor, Integer::sum);
+                    }
+                }
+            }
+            if (previous != null) {
+                scores.replaceAll((id, score) -> score + previous.get(id));
+            }
+            return scores;
+        }
+
+        // проверка каждого id из previous по спискам подходящих слов
+        Map<Integer, Integer> probe(Map<Integer, Integer> previous) {
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (Map.Entry<Integer, Integer> candidate : previous.entrySet()) {
+                int score = 0;
+                for (Map.Entry<String, Map<Integer, Integer>> entry : tokens.entrySet()) {
+                    Integer weight = entry.getValue().get(candidate.getKey());
+                    if (weight != null) {
+                        score += weight * factor(entry.getKey());
+                    }
+                }
+                if (score > 0) {
+                    scores.put(candidate.getKey(), candidate.getValue() + score);
+                }
+            }
+            return scores;
+        }
+
+        private int factor(String token) {
+            return token.length() == term.length() ? 2 : 1;
+        }
+    }
+
+    private static final class Document {
+        private final String name;
+        private final String description;
+        private final Map<String, Integer> weights;
+
+        Document(String name, String description, Map<String, Integer> weights) {
+            this.name = name;
+            this.description = description;
+            this.weights = weights;
+        }
+    }
+}
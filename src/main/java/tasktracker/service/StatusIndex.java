@@ -0,0 +1,59 @@
+package tasktracker.service;
+
+import tasktracker.model.Progress;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Вторичный индекс id сущностей одного типа по статусу.
+ * id внутри статуса упорядочены по возрастанию, как и основные хранилища, счетчики хранятся отдельно,
+ * потому что size() у ConcurrentSkipListSet - O(n). Обновления одного id должны идти последовательно,
+ * это обеспечивают блокировки менеджера.
+ */
+final class StatusIndex {
+    private final Map<Integer, Progress> statusById = new ConcurrentHashMap<>();
+    private final Map<Progress, NavigableSet<Integer>> idsByStatus = new EnumMap<>(Progress.class);
+    private final Map<Progress, AtomicInteger> counts = new EnumMap<>(Progress.class);
+
+    StatusIndex() {
+        for (Progress status : Progress.values()) {
+            idsByStatus.put(status, new ConcurrentSkipListSet<>());
+            counts.put(status, new AtomicInteger());
+        }
+    }
+
+    // status == null - сущность удалена или статус не задан
+    void set(Integer id, Progress status) {
+        Progress previous = status == null ? statusById.remove(id) : statusById.put(id, status);
+        if (previous == status) {
+            return;
+        }
+        if (previous != null && idsByStatus.get(previous).remove(id)) {
+            counts.get(previous).decrementAndGet();
+        }
+        if (status != null && idsByStatus.get(status).add(id)) {
+            counts.get(status).incrementAndGet();
+        }
+    }
+
+    NavigableSet<Integer> ids(Progress status) {
+        return idsByStatus.get(status);
+    }
+
+    int count(Progress status) {
+        return counts.get(status).get();
+    }
+
+    void clear() {
+        statusById.clear();
+        for (Progress status : Progress.values()) {
+            idsByStatus.get(status).clear();
+            counts.get(status).set(0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package tasktracker.service;
+
+import tasktracker.fileservice.TaskType;
+import tasktracker.model.Task;
+
+/**
+ * Изменение одной сущности менеджера: создание, обновление или удаление.
+ * task - копия сущности после изменения, для удаления null. sequence растет на 1 с каждым событием менеджера.
+ */
+public final class TaskEvent {
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final TaskType type;
+    private final Integer id;
+    private final Task task;
+
+    public TaskEvent(long sequence, Kind kind, TaskType type, Integer id, Task task) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.type = type;
+        this.id = id;
+        this.task = task;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+}
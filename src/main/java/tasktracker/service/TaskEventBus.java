@@ -0,0 +1,44 @@
+package tasktracker.service;
+
+import tasktracker.fileservice.TaskType;
+import tasktracker.model.Task;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Рассылка событий изменения сущностей подписчикам.
+ * Слушатели вызываются синхронно в потоке изменения, поэтому должны только складывать событие
+ * в свою очередь. Подписка и отписка не блокируют рассылку: список копируется при записи.
+ */
+final class TaskEventBus {
+    private final List<Consumer<TaskEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    void subscribe(Consumer<TaskEvent> listener) {
+        listeners.add(listener);
+    }
+
+    void unsubscribe(Consumer<TaskEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    // без подписчиков копии сущностей для событий не создаются
+    boolean hasSubscribers() {
+        return !listeners.isEmpty();
+    }
+
+    void publish(TaskEvent.Kind kind, TaskType type, Integer id, Task task) {
+        TaskEvent event = new TaskEvent(sequence.incrementAndGet(), kind, type, id, task);
+        for (Consumer<TaskEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                // ошибка одного подписчика не должна отменять изменение и рассылку остальным
+                listeners.remove(listener);
+            }
+        }
+    }
+}
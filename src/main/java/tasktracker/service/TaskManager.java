@@ -1,10 +1,15 @@
 package tasktracker.service;
 
+import tasktracker.fileservice.TaskType;
 import tasktracker.model.Epic;
+import tasktracker.model.Progress;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TaskManager {
     void addNewTask(Task task);
@@ -17,6 +22,9 @@ public interface TaskManager {
 
     List<Task> getAllTasks();
 
+    // не более limit задач с id больше afterId (null - с начала), по возрастанию id
+    List<Task> getTasks(Integer afterId, int limit);
+
     void deleteAllTasks();
 
     void addNewEpic(Epic epic);
@@ -29,6 +37,8 @@ public interface TaskManager {
 
     List<Epic> getAllEpics();
 
+    List<Epic> getEpics(Integer afterId, int limit);
+
     Epic getEpicById(Integer id);
 
     void updateEpicStatus(Epic epic);
@@ -43,9 +53,50 @@ public interface TaskManager {
 
     List<SubTask> getAllSubTasks();
 
+    List<SubTask> getSubTasks(Integer afterId, int limit);
+
     void deleteAllSubTasks();
 
     List<Task> getHistory();
 
     List<Task> getPrioritizedTasks();
+
+    // задачи расписания с началом в [from, to); null - граница не задана
+    List<Task> getPrioritizedBetween(LocalDateTime from, LocalDateTime to);
+
+    // самое раннее начало не раньше notBefore, при котором задача длиной duration ни с чем не пересекается
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore);
+
+    // ставит задачу в первый подходящий промежуток не раньше notBefore и добавляет ее одной операцией
+    void scheduleNewTask(Task task, LocalDateTime notBefore);
+
+    void scheduleNewSubTask(SubTask subTask, LocalDateTime notBefore);
+
+    // сущности типа type с указанным статусом по возрастанию id
+    List<Task> getByStatus(TaskType type, Progress status);
+
+    // не больше limit сущностей с указанным статусом и id больше afterId; afterId == null - с начала
+    List<Task> getByStatus(TaskType type, Progress status, Integer afterId, int limit);
+
+    // число сущностей типа type с указанным статусом за O(1)
+    int countByStatus(TaskType type, Progress status);
+
+    // сущности, у которых каждое слово query совпадает со словом name/description или его началом, по релевантности
+    List<Task> search(String query, int limit);
+
+    // слушатель получает каждое изменение сущностей; вызывается внутри изменения и не должен блокироваться
+    void subscribe(Consumer<TaskEvent> listener);
+
+    void unsubscribe(Consumer<TaskEvent> listener);
+
+    // не более limit задач, идущих по расписанию строго после after; из курсора важны только startTime и id
+    List<Task> getPrioritizedTasks(Task after, int limit);
+
+    /**
+     * Применяет операции по порядку как одно изменение: либо все, либо ни одной.
+     * Исключение первой неудачной операции пробрасывается после отката уже примененных.
+     *
+     * @return id сущности для каждой операции, у создания - выданный id
+     */
+    List<Integer> applyBatch(List<Operation> operations);
 }
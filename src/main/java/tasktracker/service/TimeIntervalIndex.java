@@ -0,0 +1,248 @@
+package tasktracker.service;
+
+import tasktracker.model.Task;
+
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс временных интервалов [startTime, endTime) запланированных задач.
+ * Построен как AVL-дерево по startTime, дополненное максимальным endTime поддерева,
+ * поэтому проверка пересечения, вставка и удаление выполняются за O(log n).
+ * Задачи без startTime в индекс не попадают и ни с чем не пересекаются.
+ */
+class TimeIntervalIndex {
+    private final Map<Task, Node> nodeByTask = new IdentityHashMap<>();
+    private Node root;
+    private long sequence = 0;
+
+    public void add(Task task) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null || nodeByTask.containsKey(task)) {
+            return;
+        }
+        Node node = new Node(start, endOf(task), ++sequence);
+        root = insert(root, node);
+        nodeByTask.put(task, node);
+    }
+
+    public void remove(Task task) {
+        Node node = nodeByTask.remove(task);
+        if (node != null) {
+            root = delete(root, node);
+        }
+    }
+
+    // заменяет содержимое индекса; задачи должны идти по неубыванию startTime, дерево строится за O(n)
+    public void buildFromSorted(List<? extends Task> sorted) {
+        clear();
+        Node[] nodes = new Node[sorted.size()];
+        int count = 0;
+        for (Task task : sorted) {
+            LocalDateTime start = task.getStartTime();
+            if (start == null || nodeByTask.containsKey(task)) {
+                continue;
+            }
+            Node node = new Node(start, endOf(task), ++sequence);
+            nodeByTask.put(task, node);
+            nodes[count++] = node;
+        }
+        root = build(nodes, 0, count - 1);
+    }
+
+    public void clear() {
+        nodeByTask.clear();
+        root = null;
+    }
+
+    public int size() {
+        return nodeByTask.size();
+    }
+
+    // есть ли в индексе интервал, пересекающийся с [startTime, endTime) задачи
+    public boolean isOverlapping(Task task) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return false;
+        }
+        LocalDateTime end = endOf(task);
+        Node current = root;
+        while (current != null) {
+            if (!current.maxEnd.isAfter(start)) {
+                return false;
+            }
+            if (current.start.isBefore(end) && start.isBefore(current.end)) {
+                return true;
+            }
+            if (current.left != null && current.left.maxEnd.isAfter(start)) {
+                current = current.left;
+            } else {
+                current = current.right;
+            }
+        }
+        return false;
+    }
+
+    // наибольший endTime среди интервалов, начавшихся строго до time, или null; один спуск по дереву
+    public LocalDateTime maxEndBefore(LocalDateTime time) {
+        LocalDateTime result = null;
+        Node current = root;
+        while (current != null) {
+            if (current.start.isBefore(time)) {
+                result = later(result, current.end);
+                if (current.left != null) {
+                    result = later(result, current.left.maxEnd);
+                }
+                current = current.right;
+            } else {
+                current = current.left;
+            }
+        }
+        return result;
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isAfter(a) ? b : a;
+    }
+
+    static LocalDateTime endOf(Task task) {
+        LocalDateTime end = task.getEndTime();
+        return end == null ? task.getStartTime() : end;
+    }
+
+    private static int compare(Node a, Node b) {
+        int byStart = a.start.compareTo(b.start);
+        return byStart != 0 ? byStart : Long.compare(a.seq, b.seq);
+    }
+
+    // середина диапазона становится корнем, поэтому высоты поддеревьев отличаются не больше чем на 1
+    private static Node build(Node[] nodes, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = nodes[middle];
+        node.left = build(nodes, from, middle - 1);
+        node.right = build(nodes, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static Node insert(Node current, Node node) {
+        if (current == null) {
+            return node;
+        }
+        if (compare(node, current) < 0) {
+            current.left = insert(current.left, node);
+        } else {
+            current.right = insert(current.right, node);
+        }
+        return balance(current);
+    }
+
+    private static Node delete(Node current, Node node) {
+        if (current == null) {
+            return null;
+        }
+        int cmp = compare(node, current);
+        if (cmp < 0) {
+            current.left = delete(current.left, node);
+        } else if (cmp > 0) {
+            current.right = delete(current.right, node);
+        } else {
+            if (current.left == null) {
+                return current.right;
+            }
+            if (current.right == null) {
+                return current.left;
+            }
+            Node successor = current.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(current.right);
+            successor.left = current.left;
+            return balance(successor);
+        }
+        return balance(current);
+    }
+
+    private static Node deleteMin(Node current) {
+        if (current.left == null) {
+            return current.right;
+        }
+        current.left = deleteMin(current.left);
+        return balance(current);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime max = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(max)) {
+            max = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(max)) {
+            max = node.right.maxEnd;
+        }
+        node.maxEnd = max;
+    }
+
+    private static class Node {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final long seq;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(LocalDateTime start, LocalDateTime end, long seq) {
+            this.start = start;
+            this.end = end;
+            this.seq = seq;
+            this.maxEnd = end;
+        }
+    }
+}
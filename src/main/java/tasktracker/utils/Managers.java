@@ -1,7 +1,9 @@
 package tasktracker.utils;
 
+import tasktracker.history.ArrayHistoryManager;
 import tasktracker.history.HistoryManager;
 import tasktracker.history.InMemoryHistoryManager;
+import tasktracker.service.ConcurrentTaskManager;
 import tasktracker.service.InMemoryTaskManager;
 import tasktracker.service.TaskManager;
 
@@ -13,7 +15,20 @@ public class Managers {
         return new InMemoryTaskManager(getDefaultHistory());
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(getDefaultHistory());
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getDefaultHistory(int maxSize) {
+        return new InMemoryHistoryManager(maxSize);
+    }
+
+    // ограниченная история на заранее выделенных массивах: без аллокаций на каждый просмотр
+    public static HistoryManager getArrayHistory(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
 }
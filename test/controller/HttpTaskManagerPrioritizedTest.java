@@ -1,5 +1,6 @@
 package controller;
 
+import com.google.gson.reflect.TypeToken;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -74,6 +75,60 @@ public class HttpTaskManagerPrioritizedTest {
         assertEquals("Test 3", prioritizedTasks.get(2).getName(), "Некорректное имя задачи");
     }
 
+    @DisplayName("Постраничная выдача расписания через after и limit")
+    @Test
+    public void testGetPrioritizedPage() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task task1 = new Task("Test 1", "Testing task 1", Progress.NEW, Duration.ofMinutes(5), start);
+        Task task2 = new Task("Test 2", "Testing task 2", Progress.NEW, Duration.ofMinutes(5), start.plusHours(1));
+        Task task3 = new Task("Test 3", "Testing task 3", Progress.NEW, Duration.ofMinutes(5), start.plusHours(2));
+        taskManager.addNewTask(task1);
+        taskManager.addNewTask(task2);
+        taskManager.addNewTask(task3);
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8081/prioritized?after=2030-01-01%2010:00:00&afterId="
+                + task1.getId() + "&limit=1");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Task> page = HttpTaskServer.getGson().fromJson(response.body(), new TypeToken<List<Task>>() {
+        }.getType());
+        assertEquals(1, page.size(), "Некорректный размер страницы");
+        assertEquals("Test 2", page.get(0).getName());
+
+        URI badLimit = URI.create("http://localhost:8081/prioritized?limit=0");
+        response = client.send(HttpRequest.newBuilder().uri(badLimit).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @DisplayName("Окно расписания через from и to")
+    @Test
+    public void testGetPrioritizedWindow() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        for (int i = 0; i < 4; i++) {
+            taskManager.addNewTask(new Task("Test " + i, "Testing task " + i, Progress.NEW, Duration.ofMinutes(5),
+                    start.plusDays(i)));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8081/prioritized?from=2030-01-02%2010:00:00&to=2030-01-04%2010:00:00");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Task> window = HttpTaskServer.getGson().fromJson(response.body(), new TypeToken<List<Task>>() {
+        }.getType());
+        assertEquals(List.of("Test 1", "Test 2"), window.stream().map(Task::getName).toList());
+
+        URI reversed = URI.create("http://localhost:8081/prioritized?from=2030-01-04%2010:00:00&to=2030-01-02%2010:00:00");
+        response = client.send(HttpRequest.newBuilder().uri(reversed).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
     @DisplayName("Неверный Http метод")
     @Test
     public void testGetNonExistentTask() throws IOException, InterruptedException {
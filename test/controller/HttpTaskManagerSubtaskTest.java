@@ -19,6 +19,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -234,4 +235,42 @@ public class HttpTaskManagerSubtaskTest {
         HttpResponse<String> response2 = client.send(request2, HttpResponse.BodyHandlers.ofString());
         assertEquals(406, response2.statusCode());
     }
-}
\ No newline at end of file
+
+    @DisplayName("Фильтр подзадач по статусу")
+    @Test
+    public void testGetSubtasksByStatus() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Epic epic = new Epic("Test", "Testing epic 1", Progress.NEW);
+        taskManager.addNewEpic(epic);
+        for (int i = 0; i < 4; i++) {
+            taskManager.addNewSubTask(new SubTask("Test " + i, "Testing subTask " + i,
+                    i % 2 == 0 ? Progress.DONE : Progress.NEW, Duration.ofMinutes(5), start.plusHours(i), epic.getId()));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/subtasks?status=done"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        SubTask[] done = gson.fromJson(response.body(), SubTask[].class);
+        assertEquals(List.of("Test 0", "Test 2"), Arrays.stream(done).map(SubTask::getName).toList());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/subtasks?status=DONE&after=" + done[0].getId() + "&limit=5"))
+                .GET()
+                .build();
+        SubTask[] page = gson.fromJson(client.send(request, HttpResponse.BodyHandlers.ofString()).body(),
+                SubTask[].class);
+        assertEquals(1, page.length);
+        assertEquals("Test 2", page[0].getName());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/subtasks?status=LATE"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
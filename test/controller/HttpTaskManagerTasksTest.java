@@ -1,24 +1,33 @@
 package controller;
 
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import tasktracker.controller.ExecutorMode;
 import tasktracker.controller.HttpTaskServer;
 import tasktracker.model.Progress;
 import tasktracker.model.Task;
 import tasktracker.service.TaskManager;
 import tasktracker.utils.Managers;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -71,6 +80,29 @@ public class HttpTaskManagerTasksTest {
         assertEquals("Test 2", tasksFromManager.get(0).getName(), "Некорректное имя задачи");
     }
 
+    @DisplayName("Автопланирование задачи в первый свободный промежуток")
+    @Test
+    public void testAddTaskAutoScheduled() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        taskManager.addNewTask(new Task("busy", "Testing task", Progress.NEW, Duration.ofHours(1), start));
+        String taskJson = gson.toJson(new Task("auto", "Testing task", Progress.NEW, Duration.ofMinutes(30), null));
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8081/tasks?auto=true&notBefore=2030-01-01%2010:15:00");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url)
+                .POST(HttpRequest.BodyPublishers.ofString(taskJson)).build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(201, response.statusCode());
+        Task created = gson.fromJson(response.body(), Task.class);
+        assertEquals(start.plusHours(1), created.getStartTime());
+        assertEquals(start.plusHours(1), taskManager.getTaskById(created.getId()).getStartTime());
+
+        URI badUrl = URI.create("http://localhost:8081/tasks?auto=true&notBefore=tomorrow");
+        response = client.send(HttpRequest.newBuilder().uri(badUrl)
+                .POST(HttpRequest.BodyPublishers.ofString(taskJson)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
     @DisplayName("Получение всех задачи")
     @Test
     public void testGetAllTask() throws IOException, InterruptedException {
@@ -106,6 +138,103 @@ public class HttpTaskManagerTasksTest {
         assertEquals("Test 3", tasksFromManager.get(2).getName(), "Некорректное имя задачи");
     }
 
+    @DisplayName("Список задач возвращается JSON-массивом")
+    @Test
+    public void testGetAllTasksAsJson() throws IOException, InterruptedException {
+        Task task1 = new Task("Test 1", "Testing task 1",
+                Progress.NEW, Duration.ofMinutes(5), LocalDateTime.of(2030, 1, 1, 10, 0));
+        Task task2 = new Task("Test 2", "Testing task 2",
+                Progress.DONE, Duration.ofMinutes(15), LocalDateTime.of(2030, 1, 1, 11, 0));
+        taskManager.addNewTask(task1);
+        taskManager.addNewTask(task2);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/tasks"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Task> tasks = gson.fromJson(response.body(), new TypeToken<List<Task>>() {
+        }.getType());
+        assertEquals(2, tasks.size(), "Некорректное количество задач");
+        assertEquals(task1.getName(), tasks.get(0).getName());
+        assertEquals(task2.getStatus(), tasks.get(1).getStatus());
+        assertEquals(task2.getDuration(), tasks.get(1).getDuration());
+        assertEquals(task2.getStartTime(), tasks.get(1).getStartTime());
+    }
+
+    @DisplayName("Постраничная выдача задач через after и limit")
+    @Test
+    public void testGetTasksPage() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        for (int i = 1; i <= 3; i++) {
+            taskManager.addNewTask(new Task("Test " + i, "Testing task " + i,
+                    Progress.NEW, Duration.ofMinutes(5), start.plusHours(i)));
+        }
+        int firstId = taskManager.getTasks(null, 1).get(0).getId();
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/tasks?after=" + firstId + "&limit=1"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Task> page = gson.fromJson(response.body(), new TypeToken<List<Task>>() {
+        }.getType());
+        assertEquals(1, page.size(), "Некорректный размер страницы");
+        assertEquals("Test 2", page.get(0).getName());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/tasks?after=abc"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @DisplayName("Пакет операций через POST /batch")
+    @Test
+    public void testBatch() throws IOException, InterruptedException {
+        Task existing = new Task("Test 1", "Testing task 1", Progress.NEW, Duration.ofMinutes(5),
+                LocalDateTime.of(2030, 1, 1, 10, 0));
+        taskManager.addNewTask(existing);
+        String body = "[{\"op\":\"create\",\"type\":\"task\",\"task\":{\"name\":\"Test 2\","
+                + "\"description\":\"Testing task 2\",\"status\":\"NEW\",\"duration\":\"PT5M\","
+                + "\"startTime\":\"2030-01-01 11:00:00\"}},"
+                + "{\"op\":\"delete\",\"type\":\"task\",\"id\":" + existing.getId() + "}]";
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Task> tasks = taskManager.getAllTasks();
+        assertEquals(1, tasks.size(), "Некорректное количество задач");
+        assertEquals("Test 2", tasks.get(0).getName());
+        assertEquals("[" + tasks.get(0).getId() + "," + existing.getId() + "]", response.body());
+
+        String missing = "[{\"op\":\"delete\",\"type\":\"task\",\"id\":" + tasks.get(0).getId() + "},"
+                + "{\"op\":\"delete\",\"type\":\"task\",\"id\":" + existing.getId() + "}]";
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(missing))
+                .build();
+        assertEquals(404, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(1, taskManager.getAllTasks().size(), "Пакет должен откатиться целиком");
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("[{\"op\":\"rename\",\"type\":\"task\"}]"))
+                .build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
     @DisplayName("Получение задачи по id")
     @Test
     public void testGetTaskById() throws IOException, InterruptedException {
@@ -170,6 +299,145 @@ public class HttpTaskManagerTasksTest {
         assertTrue(allTasks.isEmpty());
     }
 
+    @DisplayName("Некорректный id в пути дает 400, лишние сегменты - 404")
+    @Test
+    public void testMalformedPaths() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        for (String path : List.of("/tasks/abc", "/tasks/-1", "/tasks/99999999999", "/epics/1x")) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8081" + path))
+                    .GET()
+                    .build();
+            assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode(), path);
+        }
+        HttpRequest delete = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/subtasks/abc"))
+                .DELETE()
+                .build();
+        assertEquals(400, client.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+        for (String path : List.of("/tasks/1/2", "/tasksx", "/history/1")) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8081" + path))
+                    .GET()
+                    .build();
+            assertEquals(404, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode(), path);
+        }
+    }
+
+    @DisplayName("Поиск задач по словам")
+    @Test
+    public void testSearch() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        taskManager.addNewTask(new Task("Починить сервер", "Срочно", Progress.NEW, Duration.ofMinutes(5), start));
+        taskManager.addNewTask(new Task("Купить молоко", "Для кофе", Progress.NEW, Duration.ofMinutes(5),
+                start.plusHours(1)));
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8081/search?q=%D1%81%D0%B5%D1%80%D0%B2");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<Task> found = gson.fromJson(response.body(), new TypeToken<List<Task>>() {
+        }.getType());
+        assertEquals(List.of("Починить сервер"), found.stream().map(Task::getName).toList());
+
+        for (String bad : List.of("/search", "/search?q=", "/search?q=kofe&limit=0")) {
+            response = client.send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8081" + bad)).GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode(), bad);
+        }
+    }
+
+    @DisplayName("Поток событий изменений через Server-Sent Events")
+    @Test
+    public void testEventStream() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8081/events");
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+
+        Task task = new Task("Test 2", "Testing task 2", Progress.NEW, Duration.ofMinutes(5), LocalDateTime.now());
+        taskManager.addNewTask(task);
+        taskManager.deleteTaskById(task.getId());
+
+        List<String> kinds = new ArrayList<>();
+        List<String> data = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(),
+                StandardCharsets.UTF_8))) {
+            while (data.size() < 2) {
+                String line = reader.readLine();
+                assertNotNull(line, "Поток закрылся раньше времени");
+                if (line.startsWith("event: ")) {
+                    kinds.add(line.substring("event: ".length()));
+                } else if (line.startsWith("data: ")) {
+                    data.add(line.substring("data: ".length()));
+                }
+            }
+        }
+        assertEquals(List.of("created", "deleted"), kinds);
+        assertTrue(data.get(0).contains("\"name\":\"Test 2\""));
+        assertTrue(data.get(1).contains("\"id\":" + task.getId()));
+    }
+
+    @DisplayName("Ответ по id уходит с точной длиной, без chunked-кодирования")
+    @Test
+    public void testFixedLengthResponse() throws IOException, InterruptedException {
+        Task task = new Task("Test 1", "Testing task 1", Progress.NEW, Duration.ofMinutes(5),
+                LocalDateTime.of(2030, 1, 1, 10, 0));
+        taskManager.addNewTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/tasks/" + task.getId()))
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(String.valueOf(response.body().length),
+                response.headers().firstValue("Content-Length").orElse(null));
+        assertTrue(response.headers().firstValue("Transfer-Encoding").isEmpty());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Короткий ответ не сжимается");
+    }
+
+    @DisplayName("Ответы сжимаются gzip, если клиент его принимает")
+    @Test
+    public void testGzipResponses() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        for (int i = 0; i < 50; i++) {
+            taskManager.addNewTask(new Task("Test " + i, "Testing task " + i,
+                    Progress.NEW, Duration.ofMinutes(5), start.plusHours(i)));
+        }
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/tasks"))
+                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8")
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String json;
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            json = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<Task> tasks = gson.fromJson(json, new TypeToken<List<Task>>() {
+        }.getType());
+        assertEquals(50, tasks.size());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8081/tasks"))
+                .header("Accept-Encoding", "gzip;q=0")
+                .GET()
+                .build();
+        HttpResponse<String> plain = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(50, gson.fromJson(plain.body(), List.class).size());
+    }
+
     @DisplayName("Удаление несуществующей задачи")
     @Test
     public void testDeleteNonExistentTask() throws IOException, InterruptedException {
@@ -227,4 +495,32 @@ public class HttpTaskManagerTasksTest {
         HttpResponse<String> response2 = client.send(request2, HttpResponse.BodyHandlers.ofString());
         assertEquals(406, response2.statusCode());
     }
-}
\ No newline at end of file
+
+    @DisplayName("Параллельные запросы в режиме пула потоков")
+    @Test
+    public void testConcurrentRequestsWithThreadPool() throws IOException {
+        TaskManager concurrentManager = Managers.getConcurrent();
+        HttpTaskServer pooledServer = new HttpTaskServer(concurrentManager, 8082, 128, ExecutorMode.FIXED, 4);
+        pooledServer.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                Task task = new Task("Test " + i, "Testing task", Progress.NEW, Duration.ofMinutes(5),
+                        start.plusMinutes(i * 10L));
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:" + pooledServer.getPort() + "/tasks"))
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                        .build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(201, response.join().statusCode());
+            }
+            assertEquals(50, concurrentManager.getAllTasks().size());
+        } finally {
+            pooledServer.stop();
+        }
+    }
+}
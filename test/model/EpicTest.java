@@ -4,8 +4,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import tasktracker.model.Epic;
+import tasktracker.model.Progress;
+import tasktracker.model.SubTask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class EpicTest {
     private Epic epic;
@@ -25,4 +31,33 @@ public class EpicTest {
 
         assertEquals(epic.getId(), epic1.getId(), "Экземпляры Epic с одинаковым id должны быть равны");
     }
+
+    @DisplayName("Время, продолжительность и статус эпика пересчитываются при изменении подзадач")
+    @Test
+    void addAndRemoveSubTask_shouldUpdateAggregates() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        SubTask first = new SubTask(2, "Sub", "sub", Progress.DONE, Duration.ofMinutes(30), start, 1);
+        SubTask second = new SubTask(3, "Sub", "sub", Progress.NEW, Duration.ofMinutes(60), start.plusHours(2), 1);
+        epic.addSubTask(first);
+        epic.addSubTask(second);
+
+        assertEquals(start, epic.getStartTime());
+        assertEquals(Duration.ofMinutes(90), epic.getDuration());
+        assertEquals(Progress.IN_PROGRESS, epic.getAggregatedStatus());
+
+        // подзадачу изменили напрямую: вычитается сохраненный вклад, а не текущие поля
+        second.setStatus(Progress.DONE);
+        epic.removeSubTask(second);
+        epic.addSubTask(second);
+        assertEquals(Progress.DONE, epic.getAggregatedStatus());
+
+        epic.removeSubTask(first);
+        assertEquals(start.plusHours(2), epic.getStartTime());
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+
+        epic.clearSubTasks();
+        assertNull(epic.getStartTime());
+        assertEquals(Duration.ZERO, epic.getDuration());
+        assertEquals(Progress.NEW, epic.getAggregatedStatus());
+    }
 }
@@ -0,0 +1,89 @@
+package service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasktracker.history.ArrayHistoryManager;
+import tasktracker.history.InMemoryHistoryManager;
+import tasktracker.model.Task;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tasktracker.model.Progress.NEW;
+
+class ArrayHistoryManagerTest {
+    private ArrayHistoryManager historyManager;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = new ArrayHistoryManager(4);
+    }
+
+    @DisplayName("Повторный просмотр переносит задачу в конец истории")
+    @Test
+    void add_whenDuplicate_shouldMoveToEnd() {
+        historyManager.add(task(1));
+        historyManager.add(task(2));
+        historyManager.add(task(1));
+
+        assertEquals(List.of(2, 1), ids(historyManager.getHistory()));
+        assertEquals(2, historyManager.size());
+    }
+
+    @DisplayName("При заполнении вытесняется самая старая запись")
+    @Test
+    void add_whenFull_shouldEvictOldest() {
+        for (int i = 1; i <= 6; i++) {
+            historyManager.add(task(i));
+        }
+
+        assertEquals(List.of(3, 4, 5, 6), ids(historyManager.getHistory()));
+        assertThrows(NoSuchElementException.class, () -> historyManager.getHistoryTasks(1));
+        assertEquals(5, historyManager.getHistoryTasks(5).getId());
+    }
+
+    @DisplayName("Удаление освобождает ячейку для новых записей")
+    @Test
+    void remove_shouldReleaseSlot() {
+        for (int i = 1; i <= 4; i++) {
+            historyManager.add(task(i));
+        }
+        historyManager.remove(2);
+        historyManager.remove(100);
+        historyManager.add(task(5));
+
+        assertEquals(List.of(1, 3, 4, 5), ids(historyManager.getHistory()));
+    }
+
+    @DisplayName("Поведение совпадает с ограниченной историей на связном списке")
+    @Test
+    void randomOperations_shouldMatchLinkedHistory() {
+        ArrayHistoryManager arrayHistory = new ArrayHistoryManager(16);
+        InMemoryHistoryManager linkedHistory = new InMemoryHistoryManager(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            int id = random.nextInt(40);
+            if (random.nextInt(3) == 0) {
+                arrayHistory.remove(id);
+                linkedHistory.remove(id);
+            } else {
+                Task task = task(id);
+                arrayHistory.add(task);
+                linkedHistory.add(task);
+            }
+            assertEquals(linkedHistory.size(), arrayHistory.size());
+        }
+        assertEquals(ids(linkedHistory.getHistory()), ids(arrayHistory.getHistory()));
+    }
+
+    private static Task task(int id) {
+        return new Task(id, "Task", "Description", NEW);
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
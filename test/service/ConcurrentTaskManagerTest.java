@@ -0,0 +1,203 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tasktracker.exeption.NotFoundException;
+import tasktracker.history.InMemoryHistoryManager;
+import tasktracker.model.Epic;
+import tasktracker.model.SubTask;
+import tasktracker.model.Task;
+import tasktracker.service.ConcurrentTaskManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tasktracker.model.Progress.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        return new ConcurrentTaskManager(new InMemoryHistoryManager());
+    }
+
+    @DisplayName("Параллельное создание задач выдает уникальные id")
+    @Test
+    void addNewTask_whenCalledConcurrently_shouldGenerateUniqueIds() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    taskManager.addNewTask(new Task("Task", "Description", NEW, Duration.ofMinutes(1),
+                            start.plusMinutes(offset + i)));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Set<Integer> ids = new HashSet<>();
+        taskManager.getAllTasks().forEach(task -> ids.add(task.getId()));
+        assertEquals(threads * perThread, ids.size());
+        assertEquals(threads * perThread, taskManager.getPrioritizedTasks().size());
+    }
+
+    @DisplayName("Параллельно пересекающиеся задачи добавляются только один раз")
+    @Test
+    void addNewTask_whenOverlappingConcurrently_shouldAcceptOnlyOne() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    taskManager.addNewTask(new Task("Task", "Description", NEW, Duration.ofMinutes(30), start));
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals(49, rejected.get());
+    }
+
+    @DisplayName("Подзадачи разных эпиков добавляются параллельно без потери статуса эпика")
+    @Test
+    void addNewSubTask_whenDifferentEpicsConcurrently_shouldKeepEpicsConsistent() throws Exception {
+        int epics = 8;
+        int perEpic = 100;
+        List<Epic> created = new ArrayList<>();
+        for (int e = 0; e < epics; e++) {
+            Epic epic = new Epic("Epic", "Description");
+            taskManager.addNewEpic(epic);
+            created.add(epic);
+        }
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(epics);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int e = 0; e < epics; e++) {
+            Epic epic = created.get(e);
+            int offset = e * perEpic * 10;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perEpic; i++) {
+                    taskManager.addNewSubTask(new SubTask("SubTask", "Description", DONE, Duration.ofMinutes(1),
+                            start.plusMinutes(offset + i * 10L), epic.getId()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(epics * perEpic, taskManager.getAllSubTasks().size());
+        for (Epic epic : created) {
+            Epic actual = taskManager.getEpicById(epic.getId());
+            assertEquals(perEpic, actual.getSubTaskList().size());
+            assertEquals(DONE, actual.getStatus());
+        }
+    }
+
+    @DisplayName("Списки отдают копии эпиков, которые не меняются вместе с подзадачами")
+    @Test
+    void getAllEpics_whenSubTasksChangeConcurrently_shouldReturnStableCopies() throws Exception {
+        Epic epic = new Epic("Epic", "Description");
+        taskManager.addNewEpic(epic);
+        Epic listed = taskManager.getAllEpics().get(0);
+        taskManager.addNewSubTask(new SubTask("SubTask", "Description", NEW, Duration.ofMinutes(1),
+                LocalDateTime.of(2025, 1, 1, 0, 0), epic.getId()));
+        assertTrue(listed.getSubTaskList().isEmpty(), "Выданный эпик не должен меняться после выдачи");
+
+        LocalDateTime start = LocalDateTime.of(2025, 2, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                SubTask subTask = new SubTask("SubTask", "Description", NEW, Duration.ofMinutes(1),
+                        start.plusMinutes(i * 10L), epic.getId());
+                taskManager.addNewSubTask(subTask);
+                taskManager.deleteSubTaskById(subTask.getId());
+            }
+        });
+        Future<?> reader = executor.submit(() -> {
+            while (!writer.isDone()) {
+                for (Epic copy : taskManager.getAllEpics()) {
+                    for (SubTask subTask : copy.getSubTaskList()) {
+                        assertNotNull(subTask.getId());
+                    }
+                }
+                for (Task task : taskManager.getPrioritizedTasks()) {
+                    if (task instanceof Epic copy) {
+                        assertNotNull(copy.getSubTaskList().toString());
+                    }
+                }
+            }
+        });
+        writer.get();
+        reader.get();
+        executor.shutdown();
+    }
+
+    @DisplayName("Просмотр, идущий параллельно с удалением, не возвращает удаленную сущность в историю")
+    @Test
+    void getById_whenDeletedConcurrently_shouldNotLeaveDeletedInHistory() throws Exception {
+        Epic epic = new Epic("Epic", "Description");
+        taskManager.addNewEpic(epic);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 0, 0);
+        AtomicInteger lastId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(1), start.plusMinutes(i * 10L));
+                SubTask subTask = new SubTask("SubTask", "Description", NEW, Duration.ofMinutes(1),
+                        start.plusMinutes(i * 10L + 5), epic.getId());
+                taskManager.addNewTask(task);
+                taskManager.addNewSubTask(subTask);
+                lastId.set(task.getId());
+                taskManager.deleteTaskById(task.getId());
+                taskManager.deleteSubTaskById(subTask.getId());
+            }
+        });
+        Future<?> reader = executor.submit(() -> {
+            while (!writer.isDone()) {
+                int id = lastId.get();
+                try {
+                    taskManager.getTaskById(id);
+                } catch (NotFoundException ignored) {
+                    // задачу уже удалили
+                }
+                try {
+                    taskManager.getSubTaskById(id + 1);
+                } catch (NotFoundException ignored) {
+                    // подзадачу уже удалили
+                }
+            }
+        });
+        writer.get();
+        reader.get();
+        executor.shutdown();
+
+        assertTrue(taskManager.getHistory().isEmpty(), "В истории остались удаленные сущности");
+    }
+}
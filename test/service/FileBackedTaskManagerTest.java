@@ -5,22 +5,33 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import tasktracker.fileservice.FileBackedTaskManager;
+import tasktracker.fileservice.SnapshotFormat;
+import tasktracker.fileservice.TaskType;
 import tasktracker.fileservice.exception.ManagerSaveException;
 import tasktracker.model.Epic;
 import tasktracker.model.Progress;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
+import tasktracker.service.Operation;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static tasktracker.model.Progress.DONE;
+import static tasktracker.model.Progress.IN_PROGRESS;
 
 class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     private static Path tempFile;
@@ -197,6 +208,387 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         assertTrue(loadFromFile.getAllSubTasks().isEmpty());
     }
 
+    @DisplayName("в режиме журнала изменения дописываются в журнал, а снимок не переписывается")
+    @Test
+    void journalMode_shouldAppendRecordsAndReplayOnLoad() throws IOException {
+        Path snapshot = Files.createTempFile("journal", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot.toFile(), 100);
+            fileManager.addNewEpic(new Epic(1, "Epic", "epic-descr 1", Progress.NEW));
+            fileManager.addNewSubTask(new SubTask(2, "Sub", "sub-descr", Progress.DONE, Duration.ofMinutes(30),
+                    LocalDateTime.of(2025, 1, 1, 10, 0), 1));
+            fileManager.addNewTask(new Task(3, "Task", "task-descr", Progress.NEW, Duration.ofMinutes(30),
+                    LocalDateTime.of(2025, 1, 2, 10, 0)));
+            fileManager.deleteTaskById(3);
+
+            assertEquals("", Files.readString(snapshot), "Снимок не должен переписываться");
+            assertEquals(5, Files.readAllLines(journal).size());
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile(), 100);
+            assertTrue(restored.getAllTasks().isEmpty());
+            assertEquals(1, restored.getAllSubTasks().size());
+            assertEquals(Progress.DONE, restored.getEpicMap().get(1).getStatus());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("журнал прежнего режима не откатывает изменения, сохраненные снимком")
+    @Test
+    void loadFromFile_afterSwitchingFromJournalMode_shouldKeepLaterChanges() throws IOException {
+        Path snapshot = Files.createTempFile("journal", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            LocalDateTime start = LocalDateTime.of(2025, 1, 2, 10, 0);
+            FileBackedTaskManager journaled = new FileBackedTaskManager(snapshot.toFile(), 100);
+            journaled.addNewTask(new Task(1, "A", "descr", Progress.NEW, Duration.ofMinutes(30), start));
+            assertTrue(Files.exists(journal));
+
+            FileBackedTaskManager snapshotOnly = FileBackedTaskManager.loadFromFile(snapshot.toFile());
+            snapshotOnly.updateTask(new Task(1, "B", "descr", Progress.DONE, Duration.ofMinutes(30), start));
+            assertFalse(Files.exists(journal), "Журнал должен быть свернут в снимок");
+
+            Task restored = FileBackedTaskManager.loadFromFile(snapshot.toFile(), 100).getTaskById(1);
+            assertEquals("B", restored.getName());
+            assertEquals(Progress.DONE, restored.getStatus());
+
+            journaled = new FileBackedTaskManager(snapshot.toFile(), 100);
+            journaled.addNewTask(new Task(2, "C", "descr", Progress.NEW, Duration.ofMinutes(30), start.plusHours(1)));
+            new FileBackedTaskManager(snapshot.toFile()).addNewTask(
+                    new Task(3, "D", "descr", Progress.NEW, Duration.ofMinutes(30), start.plusHours(2)));
+            assertFalse(Files.exists(journal), "Сохранение снимком должно удалять старый журнал");
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("оборванная последняя запись журнала пропускается при восстановлении")
+    @Test
+    void loadFromFile_whenJournalEndsWithTornRecord_shouldSkipIt() throws IOException {
+        Path snapshot = Files.createTempFile("journal", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            Files.writeString(journal, "PUT,1,TASK,Task,descr,NEW,PT30M,2025-01-02T10:00\nPUT,2,TASK,Ta");
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile(), 100);
+
+            assertEquals(List.of(1), restored.getAllTasks().stream().map(Task::getId).toList());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("пакет операций пишется в журнал одной записью и восстанавливается")
+    @Test
+    void applyBatch_shouldAppendOneRecordAndReplayOnLoad() throws IOException {
+        Path snapshot = Files.createTempFile("journal", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot.toFile(), 100);
+            fileManager.addNewTask(new Task(1, "Task", "task-descr", Progress.NEW, Duration.ofMinutes(30),
+                    LocalDateTime.of(2025, 1, 2, 10, 0)));
+
+            fileManager.applyBatch(List.of(
+                    Operation.create(new Epic(2, "Epic", "epic-descr", Progress.NEW)),
+                    Operation.create(new SubTask(3, "Sub", "sub-descr", Progress.DONE, Duration.ofMinutes(30),
+                            LocalDateTime.of(2025, 1, 1, 10, 0), 2)),
+                    Operation.delete(TaskType.TASK, 1)));
+            assertThrows(IllegalArgumentException.class, () -> fileManager.applyBatch(List.of(
+                    Operation.delete(TaskType.EPIC, 2),
+                    Operation.create(new Task(4, "Task", "task-descr", Progress.NEW, Duration.ofMinutes(30),
+                            LocalDateTime.of(2025, 1, 3, 10, 0))),
+                    Operation.create(new Task(5, "Task", "task-descr", Progress.NEW, Duration.ofMinutes(30),
+                            LocalDateTime.of(2025, 1, 3, 10, 15))))));
+
+            List<String> records = Files.readAllLines(journal);
+            assertEquals(5, records.size(), "Откаченный пакет не должен попадать в журнал");
+            assertEquals("DELETE,TASK,1", records.get(4));
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile(), 100);
+            assertTrue(restored.getAllTasks().isEmpty());
+            assertEquals(1, restored.getAllSubTasks().size());
+            assertEquals(Progress.DONE, restored.getEpicMap().get(2).getStatus());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("запятые и переводы строк в тексте не портят снимок и журнал")
+    @Test
+    void csv_whenTextContainsSeparators_shouldRoundTrip() throws IOException {
+        Path snapshot = Files.createTempFile("escape", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot.toFile());
+            fileManager.addNewEpic(new Epic(1, "Epic, big", "line 1\nline 2", Progress.NEW));
+            fileManager.addNewSubTask(new SubTask(2, "Sub\\n", "a,b,,c,", Progress.DONE, Duration.ofMinutes(30),
+                    LocalDateTime.of(2025, 1, 1, 10, 0), 1));
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile());
+            assertEquals("Epic, big", restored.getEpicMap().get(1).getName());
+            assertEquals("line 1\nline 2", restored.getEpicMap().get(1).getDescription());
+            assertEquals("Sub\\n", restored.getSubTaskMap().get(2).getName());
+            assertEquals("a,b,,c,", restored.getSubTaskMap().get(2).getDescription());
+            assertEquals(1, restored.getSubTaskMap().get(2).getEpicId());
+
+            FileBackedTaskManager journaled = new FileBackedTaskManager(snapshot.toFile(), 100);
+            journaled.addNewTask(new Task(3, "x,y", "z\r\n", Progress.NEW, Duration.ofMinutes(5),
+                    LocalDateTime.of(2025, 1, 2, 10, 0)));
+            Task replayed = FileBackedTaskManager.loadFromFile(snapshot.toFile(), 100).getTaskMap().get(3);
+            assertEquals("x,y", replayed.getName());
+            assertEquals("z\r\n", replayed.getDescription());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("строка задачи совпадает с прежним форматом String.format")
+    @Test
+    void csvLine_shouldMatchPreviousFormat() {
+        List<Duration> durations = List.of(Duration.ZERO, Duration.ofMinutes(90), Duration.ofHours(25),
+                Duration.ofSeconds(59), Duration.ofSeconds(3601), Duration.ofMillis(1500), Duration.ofMinutes(-5));
+        List<LocalDateTime> times = Arrays.asList(null, LocalDateTime.of(2025, 1, 2, 3, 4),
+                LocalDateTime.of(2025, 12, 31, 23, 59, 7), LocalDateTime.of(999, 1, 1, 0, 0, 0, 120_000_000),
+                LocalDateTime.of(2025, 1, 1, 0, 0, 0, 123_456_000), LocalDateTime.of(2025, 1, 1, 0, 0, 0, 1),
+                LocalDateTime.of(12025, 1, 1, 0, 0));
+        for (Duration duration : durations) {
+            for (LocalDateTime time : times) {
+                Task task = new Task(7, "Task", "descr", Progress.IN_PROGRESS, duration, time);
+                SubTask subTask = new SubTask(8, "Sub", "descr", Progress.DONE, duration, time, 7);
+                assertEquals(String.format("%d,%s,%s,%s,%s,%s,%s%n", 7, "TASK", "Task", "descr",
+                        Progress.IN_PROGRESS, duration, time), task.toString());
+                assertEquals(String.format("%d,%s,%s,%s,%s,%s,%s,%d%n", 8, "SUBTASK", "Sub", "descr",
+                        Progress.DONE, duration, time, 7), subTask.toString());
+            }
+        }
+    }
+
+    @DisplayName("после заданного числа записей журнал сворачивается в снимок")
+    @Test
+    void journalMode_whenThresholdReached_shouldCompact() throws IOException {
+        Path snapshot = Files.createTempFile("journal", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot.toFile(), 3);
+            fileManager.addNewEpic(new Epic(1, "Epic", "epic-descr 1", Progress.NEW));
+            fileManager.addNewEpic(new Epic(2, "Epic", "epic-descr 2", Progress.NEW));
+            assertTrue(Files.exists(journal));
+
+            fileManager.deleteEpicById(1);
+
+            assertFalse(Files.exists(journal), "Журнал должен быть очищен после сворачивания");
+            String expected = """
+                    id,type,name,status,description,duration,localDateTime,epic
+                    2,EPIC,Epic,epic-descr 2,NEW,null,null
+                    """;
+            assertEquals(normalizeLineEndings(expected), normalizeLineEndings(Files.readString(snapshot)));
+            assertFalse(Files.exists(Path.of(snapshot + ".tmp")), "Снимок должен подменяться атомарно");
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("групповая фиксация сохраняет изменения параллельных вызовов")
+    @Test
+    void groupCommit_whenConcurrentWriters_shouldPersistAllRecords() throws Exception {
+        Path snapshot = Files.createTempFile("group", ".csv");
+        Path journal = Path.of(snapshot + ".journal");
+        try {
+            FileBackedTaskManager fileManager = FileBackedTaskManager.loadWithGroupCommit(snapshot.toFile(),
+                    10_000, Duration.ofMillis(5), 512, true);
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t * 100;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        fileManager.addNewTask(new Task("Task", "descr", Progress.NEW, Duration.ofMinutes(1),
+                                start.plusMinutes(offset + i)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            fileManager.close();
+
+            assertEquals(400, Files.readAllLines(journal).size());
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile(), 10_000);
+            assertEquals(400, restored.getAllTasks().size());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("бинарный снимок восстанавливает задачи без потерь")
+    @Test
+    void binarySnapshot_shouldRoundTripAllFields() throws IOException {
+        Path snapshot = Files.createTempFile("binary", ".bin");
+        try {
+            FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot.toFile(), 0, SnapshotFormat.BINARY);
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0, 15, 123_456_789);
+            fileManager.addNewEpic(new Epic(1, "Эпик, с запятой", "описание", Progress.NEW));
+            fileManager.addNewSubTask(new SubTask(2, "Sub", "sub-descr", Progress.DONE, Duration.ofMinutes(30),
+                    start, 1));
+            fileManager.addNewTask(new Task(3, "Task", null, Progress.IN_PROGRESS, Duration.ofSeconds(90),
+                    start.plusDays(1)));
+
+            ByteBuffer head = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            assertEquals(0x4B4E424E, head.getInt(), "Снимок должен начинаться с магического числа");
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile());
+            assertEquals(fileManager.getAllTasks().toString(), restored.getAllTasks().toString());
+            assertEquals(fileManager.getAllEpics().toString(), restored.getAllEpics().toString());
+            assertEquals(fileManager.getAllSubTasks().toString(), restored.getAllSubTasks().toString());
+            assertEquals(start, restored.getSubTaskMap().get(2).getStartTime());
+            assertNull(restored.getTaskMap().get(3).getDescription());
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @DisplayName("CSV импортируется в бинарный снимок и выгружается обратно")
+    @Test
+    void importCsv_thenExportCsv_shouldKeepContent() throws IOException {
+        Path csv = Files.createTempFile("import", ".csv");
+        Path snapshot = Files.createTempFile("import", ".bin");
+        Path exported = Files.createTempFile("export", ".csv");
+        try {
+            String content = """
+                    id,type,name,status,description,duration,localDateTime,epic
+                    1,TASK,Task,task-descr,NEW,PT30M,2025-11-11T10:00
+                    2,EPIC,Epic,epic-descr,DONE,PT1H,2025-11-12T11:00
+                    3,SUBTASK,Sub,sub-descr,DONE,PT1H,2025-11-12T11:00,2
+                    """;
+            Files.writeString(csv, content);
+
+            FileBackedTaskManager.importCsv(csv.toFile(), snapshot.toFile()).exportCsv(exported.toFile());
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(snapshot.toFile());
+
+            assertEquals(1, restored.getAllTasks().size());
+            assertEquals(1, restored.getAllSubTasks().size());
+            assertEquals(normalizeLineEndings(content), normalizeLineEndings(Files.readString(exported)));
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(exported);
+        }
+    }
+
+    @DisplayName("загрузка CSV через отображение в память совпадает с fromString")
+    @Test
+    void loadFromFile_whenCsvIsIrregular_shouldMatchFromString() throws IOException {
+        Path csv = Files.createTempFile("mapped", ".csv");
+        try {
+            List<String> lines = List.of(
+                    " 1 ,task, Задача ,описание ,new,PT30M,2025-11-11T10:00:00.123456789",
+                    "2,Epic,Epic,epic-descr,IN_PROGRESS,null,null",
+                    "3,SUBTASK,Sub,sub-descr,done,PT1H,2025-11-12T11:00,2");
+            Files.writeString(csv, "id,type,name,status,description,duration,localDateTime,epic\r\n"
+                    + String.join("\r\n", lines) + "\r\n\r\n");
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(csv.toFile());
+
+            assertEquals(FileBackedTaskManager.fromString(lines.get(0)).toString(),
+                    restored.getTaskMap().get(1).toString());
+            assertEquals(FileBackedTaskManager.fromString(lines.get(2)).toString(),
+                    restored.getSubTaskMap().get(3).toString());
+            Epic epic = restored.getEpicMap().get(2);
+            assertEquals(List.of(restored.getSubTaskMap().get(3)), epic.getSubTaskList());
+            assertEquals(DONE, epic.getStatus(), "Статус эпика пересчитывается по подзадачам");
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @DisplayName("большой CSV разбирается по кускам с сохранением порядка строк")
+    @Test
+    void loadFromFile_whenCsvSpansSeveralChunks_shouldKeepFileOrder() throws IOException {
+        Path csv = Files.createTempFile("chunked", ".csv");
+        try {
+            StringBuilder content = new StringBuilder("id,type,name,status,description,duration,localDateTime,epic\n");
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+            int count = 60_000;
+            for (int i = 1; i <= count; i++) {
+                content.append(new Task(i, "Task " + i, "descr", Progress.NEW, Duration.ofMinutes(1),
+                        start.plusMinutes(i)));
+            }
+            // более поздняя строка с тем же id перекрывает первую
+            content.append(new Task(1, "Task 1 updated", "descr", Progress.DONE, Duration.ofMinutes(1), start));
+            Files.writeString(csv, content);
+            assertTrue(Files.size(csv) > 2L * (1 << 20), "Файл должен занимать несколько кусков");
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(csv.toFile());
+
+            assertEquals(count, restored.getAllTasks().size());
+            assertEquals("Task 1 updated", restored.getTaskMap().get(1).getName());
+            assertEquals(Progress.DONE, restored.getTaskMap().get(1).getStatus());
+            assertEquals("Task " + count, restored.getTaskMap().get(count).getName());
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @DisplayName("после загрузки восстанавливаются расписание, связи эпиков и счетчик id")
+    @Test
+    void loadFromFile_shouldRebuildScheduleEpicLinksAndIdSequence() throws IOException {
+        Path csv = Files.createTempFile("restore", ".csv");
+        try {
+            Files.writeString(csv, """
+                    id,type,name,status,description,duration,localDateTime,epic
+                    7,TASK,Late,descr,NEW,PT30M,2025-01-03T10:00
+                    2,EPIC,Epic,descr,NEW,null,null
+                    5,SUBTASK,Sub,descr,IN_PROGRESS,PT1H,2025-01-02T10:00,2
+                    3,TASK,Early,descr,NEW,PT30M,2025-01-01T10:00
+                    """);
+
+            FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(csv.toFile());
+
+            assertEquals(List.of("Early", "Epic", "Sub", "Late"),
+                    restored.getPrioritizedTasks().stream().map(Task::getName).toList());
+            Epic epic = restored.getEpicMap().get(2);
+            assertEquals(1, epic.getSubTaskList().size());
+            assertEquals(IN_PROGRESS, epic.getStatus());
+            assertEquals(LocalDateTime.of(2025, 1, 2, 10, 0), epic.getStartTime());
+
+            assertThrows(IllegalArgumentException.class, () -> restored.addNewTask(new Task("Overlap", "descr",
+                    Progress.NEW, Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 1, 10, 15))));
+            Task next = new Task("Next", "descr", Progress.NEW, Duration.ofMinutes(10),
+                    LocalDateTime.of(2025, 2, 1, 10, 0));
+            restored.addNewTask(next);
+            assertTrue(next.getId() > 7, "Новый id не должен совпадать с восстановленными");
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @DisplayName("обрезанный бинарный снимок не загружается")
+    @Test
+    void binarySnapshot_whenTruncated_shouldThrow() throws IOException {
+        Path snapshot = Files.createTempFile("broken", ".bin");
+        try {
+            FileBackedTaskManager fileManager = new FileBackedTaskManager(snapshot.toFile(), 0, SnapshotFormat.BINARY);
+            fileManager.addNewTask(new Task(1, "Task", "task-descr", Progress.NEW, Duration.ofMinutes(30),
+                    LocalDateTime.of(2025, 1, 1, 10, 0)));
+            byte[] bytes = Files.readAllBytes(snapshot);
+            Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 6));
+
+            assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(snapshot.toFile()));
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
     private String normalizeLineEndings(String input) {
         return input.replace("\r\n", "\n").replace("\r", "\n");
     }
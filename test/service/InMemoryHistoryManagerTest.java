@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import tasktracker.history.HistoryManager;
+import tasktracker.history.InMemoryHistoryManager;
 import tasktracker.model.Epic;
 import tasktracker.model.Progress;
 import tasktracker.model.SubTask;
@@ -14,8 +15,10 @@ import tasktracker.utils.Managers;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static tasktracker.model.Progress.NEW;
 
@@ -107,6 +110,55 @@ class InMemoryHistoryManagerTest {
 
     }
 
+    @DisplayName("Ограниченная история вытесняет самые старые записи")
+    @Test
+    void addHistory_whenBounded_shouldEvictOldest() {
+        InMemoryHistoryManager bounded = new InMemoryHistoryManager(3);
+        for (int i = 1; i <= 5; i++) {
+            task.setId(i);
+            bounded.add(new Task(task));
+        }
+        bounded.add(bounded.getHistoryTasks(3));
+
+        List<Task> history = bounded.getHistory();
+        assertEquals(3, bounded.size());
+        assertEquals(List.of(4, 5, 3), history.stream().map(Task::getId).toList());
+        assertThrows(NoSuchElementException.class, () -> bounded.getHistoryTasks(1));
+    }
+
+    @DisplayName("Удаление из истории синхронно убирает запись из индекса и учет памяти")
+    @Test
+    void removeHistory_shouldKeepIndexAndBytesInSync() {
+        InMemoryHistoryManager manager = new InMemoryHistoryManager();
+        addTasksWithId(task, 10);
+        for (int i = 1; i <= 10; i++) {
+            manager.add(historyManager.getHistoryTasks(i));
+        }
+        assertTrue(manager.getApproximateBytes() > 0);
+
+        for (int i = 1; i <= 10; i++) {
+            manager.remove(i);
+        }
+
+        assertEquals(0, manager.size());
+        assertEquals(0, manager.getApproximateBytes());
+        assertThrows(NoSuchElementException.class, () -> manager.getHistoryTasks(5));
+    }
+
+    @DisplayName("Фабрика ограниченной истории строит InMemoryHistoryManager, 0 - без ограничения")
+    @Test
+    void getDefaultHistory_withMaxSize_shouldBuildInMemoryHistory() {
+        historyManager = Managers.getDefaultHistory(InMemoryHistoryManager.UNBOUNDED);
+        addTasksWithId(task, 20);
+
+        assertTrue(historyManager instanceof InMemoryHistoryManager);
+        assertEquals(20, historyManager.getHistory().size());
+
+        historyManager = Managers.getDefaultHistory(2);
+        addTasksWithId(task, 3);
+        assertEquals(2, historyManager.getHistory().size());
+    }
+
     private void addTasks(Task task, int count) {
         for (int i = 0; i < count; i++) {
             historyManager.add(task);
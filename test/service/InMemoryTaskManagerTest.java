@@ -4,6 +4,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import tasktracker.exeption.NotFoundException;
 import tasktracker.history.InMemoryHistoryManager;
+import tasktracker.fileservice.TaskType;
 import tasktracker.model.Epic;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
@@ -259,4 +260,88 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         taskManager.updateSubTask(subtask2);
         assertEquals(IN_PROGRESS, epic.getStatus(), "Все подзадачи IN_PROGRESS - статус эпика должен быть IN_PROGRESS");
     }
-}
\ No newline at end of file
+
+    @DisplayName("Пересечение по времени определяется индексом интервалов")
+    @Test
+    void addNewTask_whenIntervalsOverlap_shouldThrowException() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        taskManager.addNewTask(new Task(1, "Task", "Description", NEW, Duration.ofMinutes(60), start));
+        taskManager.addNewTask(new Task(2, "Task", "Description", NEW, Duration.ofMinutes(30), start.plusHours(2)));
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addNewTask(
+                new Task(3, "Task", "Description", NEW, Duration.ofMinutes(30), start.plusMinutes(45))));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addNewTask(
+                new Task(4, "Task", "Description", NEW, Duration.ofHours(5), start.minusHours(1))));
+
+        taskManager.addNewTask(new Task(5, "Task", "Description", NEW, Duration.ofMinutes(60), start.plusHours(1)));
+        assertEquals(3, taskManager.getAllTasks().size(), "Смежные интервалы не должны пересекаться");
+    }
+
+    @DisplayName("Удаление и обновление задачи освобождают её интервал")
+    @Test
+    void deleteAndUpdateTask_shouldReleaseInterval() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        taskManager.addNewTask(new Task(1, "Task", "Description", NEW, Duration.ofMinutes(60), start));
+        taskManager.updateTask(new Task(1, "Task", "Description", NEW, Duration.ofMinutes(60), start.plusHours(3)));
+        taskManager.addNewTask(new Task(2, "Task", "Description", NEW, Duration.ofMinutes(60), start));
+
+        taskManager.deleteTaskById(1);
+        taskManager.addNewTask(new Task(3, "Task", "Description", NEW, Duration.ofMinutes(60), start.plusHours(3)));
+
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateTask(
+                new Task(3, "Task", "Description", NEW, Duration.ofMinutes(60), start.plusMinutes(30))));
+    }
+
+    @DisplayName("Снимок задачи обновляется после изменения и не зависит от возвращенной копии")
+    @Test
+    void getTaskById_shouldReturnIsolatedCopyOfLatestSnapshot() {
+        Task task = new Task(1, "Task", "Description", NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        taskManager.addNewTask(task);
+
+        Task first = taskManager.getTaskById(1);
+        first.setName("Изменено вызывающим кодом");
+        assertEquals("Task", taskManager.getTaskById(1).getName());
+
+        taskManager.updateTask(new Task(1, "Updated", "Description", DONE, Duration.ofMinutes(30),
+                LocalDateTime.of(2025, 1, 1, 0, 0)));
+        Task updated = taskManager.getTaskById(1);
+
+        assertEquals("Updated", updated.getName());
+        assertEquals(DONE, updated.getStatus());
+        assertEquals("Updated", taskManager.getHistory().get(0).getName());
+        assertNotSame(updated, taskManager.getHistory().get(0));
+    }
+
+    @DisplayName("Пакетная загрузка заменяет содержимое и строит индексы")
+    @Test
+    void bulkLoad_shouldReplaceContentAndBuildIndexes() {
+        taskManager.addNewTask(new Task(1, "Old", "Description", NEW, Duration.ofMinutes(30),
+                LocalDateTime.of(2024, 1, 1, 0, 0)));
+        taskManager.getTaskById(1);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Epic epic = new Epic(10, "Epic", "Description", NEW);
+        SubTask subTask = new SubTask(11, "Sub", "Description", DONE, Duration.ofMinutes(30), start.plusHours(5), 10);
+        Task first = new Task(12, "First", "Description", NEW, Duration.ofMinutes(30), start);
+        Task replaced = new Task(13, "Replaced", "Description", NEW, Duration.ofMinutes(30), start.plusHours(1));
+        Task second = new Task(13, "Second", "Description", NEW, Duration.ofMinutes(30), start.plusHours(2));
+
+        taskManager.bulkLoad(List.of(epic, subTask, first, replaced, second));
+
+        assertTrue(taskManager.getHistory().isEmpty(), "История старых задач должна быть очищена");
+        assertEquals(List.of("First", "Second"), taskManager.getAllTasks().stream().map(Task::getName).toList());
+        assertEquals(List.of("First", "Second", "Epic", "Sub"),
+                taskManager.getPrioritizedTasks().stream().map(Task::getName).toList());
+        assertEquals(DONE, epic.getStatus());
+        assertEquals(2, taskManager.countByStatus(TaskType.TASK, NEW));
+        assertEquals(List.of(epic), taskManager.getByStatus(TaskType.EPIC, DONE));
+        assertTrue(taskManager.validateOverlapping(new Task("Probe", "Description", NEW, Duration.ofMinutes(10),
+                start.plusHours(2).plusMinutes(10))));
+        assertFalse(taskManager.validateOverlapping(new Task("Probe", "Description", NEW, Duration.ofMinutes(10),
+                start.plusHours(1))));
+
+        Task next = new Task("Next", "Description", NEW, Duration.ofMinutes(10), start.plusDays(1));
+        taskManager.addNewTask(next);
+        assertEquals(14, next.getId());
+    }
+}
@@ -3,14 +3,20 @@ package service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import tasktracker.exeption.NotFoundException;
+import tasktracker.fileservice.TaskType;
 import tasktracker.model.Epic;
 import tasktracker.model.SubTask;
 import tasktracker.model.Task;
+import tasktracker.service.Operation;
+import tasktracker.service.TaskEvent;
 import tasktracker.service.TaskManager;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static tasktracker.model.Progress.*;
@@ -229,6 +235,421 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(taskManager.getHistory().isEmpty());
     }
 
+    /**
+     * Pagination
+     */
+    @DisplayName("Постраничная выдача задач по id")
+    @Test
+    void getTasks_whenPagingByCursor_shouldReturnAllTasksOnce() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            taskManager.addNewTask(new Task("Task " + i, "Description", NEW, Duration.ofMinutes(10), start.plusHours(i)));
+        }
+
+        List<Task> first = taskManager.getTasks(null, 2);
+        List<Task> second = taskManager.getTasks(first.get(1).getId(), 2);
+        List<Task> last = taskManager.getTasks(second.get(1).getId(), 2);
+
+        assertEquals(List.of("Task 0", "Task 1"), first.stream().map(Task::getName).toList());
+        assertEquals(List.of("Task 2", "Task 3"), second.stream().map(Task::getName).toList());
+        assertEquals(List.of("Task 4"), last.stream().map(Task::getName).toList());
+        assertTrue(taskManager.getTasks(last.get(0).getId(), 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getTasks(null, 0));
+    }
+
+    @DisplayName("Постраничная выдача расписания по startTime и id")
+    @Test
+    void getPrioritizedTasks_whenPagingByCursor_shouldKeepScheduleOrder() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task late = new Task("late", "Description", NEW, Duration.ofMinutes(10), start.plusHours(2));
+        Task early = new Task("early", "Description", NEW, Duration.ofMinutes(10), start);
+        Task middle = new Task("middle", "Description", NEW, Duration.ofMinutes(10), start.plusHours(1));
+        taskManager.addNewTask(late);
+        taskManager.addNewTask(early);
+        taskManager.addNewTask(middle);
+
+        List<Task> first = taskManager.getPrioritizedTasks(null, 2);
+        List<Task> rest = taskManager.getPrioritizedTasks(first.get(1), 2);
+
+        assertEquals(List.of("early", "middle"), first.stream().map(Task::getName).toList());
+        assertEquals(List.of("late"), rest.stream().map(Task::getName).toList());
+    }
+
+    /**
+     * Status index
+     */
+    @DisplayName("Индекс статусов следует за добавлением, обновлением и удалением")
+    @Test
+    void getByStatus_shouldFollowMutations() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(30), start);
+        taskManager.addNewTask(task);
+        Epic epic = new Epic("Epic", "Description", NEW);
+        taskManager.addNewEpic(epic);
+        SubTask first = new SubTask("Sub 1", "Description", DONE, Duration.ofMinutes(30), start.plusHours(1),
+                epic.getId());
+        SubTask second = new SubTask("Sub 2", "Description", NEW, Duration.ofMinutes(30), start.plusHours(2),
+                epic.getId());
+        taskManager.addNewSubTask(first);
+        taskManager.addNewSubTask(second);
+
+        assertEquals(List.of(task), taskManager.getByStatus(TaskType.TASK, NEW));
+        assertEquals(List.of(first), taskManager.getByStatus(TaskType.SUBTASK, DONE));
+        assertEquals(1, taskManager.countByStatus(TaskType.EPIC, IN_PROGRESS));
+
+        taskManager.updateTask(new Task(task.getId(), "Task", "Description", DONE, Duration.ofMinutes(30), start));
+        taskManager.deleteSubTaskById(second.getId());
+
+        assertEquals(0, taskManager.countByStatus(TaskType.TASK, NEW));
+        assertEquals(1, taskManager.countByStatus(TaskType.TASK, DONE));
+        assertEquals(0, taskManager.countByStatus(TaskType.SUBTASK, NEW));
+        assertEquals(List.of(epic.getId()),
+                taskManager.getByStatus(TaskType.EPIC, DONE).stream().map(Task::getId).toList());
+        assertEquals(0, taskManager.countByStatus(TaskType.EPIC, IN_PROGRESS));
+
+        taskManager.deleteAllEpics();
+        assertEquals(0, taskManager.countByStatus(TaskType.EPIC, DONE));
+        assertEquals(0, taskManager.countByStatus(TaskType.SUBTASK, DONE));
+        assertTrue(taskManager.getByStatus(TaskType.SUBTASK, DONE).isEmpty());
+    }
+
+    @DisplayName("Страница выборки по статусу идет от курсора и не длиннее limit")
+    @Test
+    void getByStatus_withCursor_shouldReturnPage() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        List<Integer> newIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task("Task " + i, "Description", i == 2 ? DONE : NEW, Duration.ofMinutes(10),
+                    start.plusHours(i));
+            taskManager.addNewTask(task);
+            if (i != 2) {
+                newIds.add(task.getId());
+            }
+        }
+
+        assertEquals(newIds.subList(0, 2),
+                taskManager.getByStatus(TaskType.TASK, NEW, null, 2).stream().map(Task::getId).toList());
+        assertEquals(newIds.subList(2, 4),
+                taskManager.getByStatus(TaskType.TASK, NEW, newIds.get(1), 10).stream().map(Task::getId).toList());
+        assertTrue(taskManager.getByStatus(TaskType.TASK, NEW, newIds.get(3), 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getByStatus(TaskType.TASK, NEW, null, 0));
+    }
+
+    /**
+     * Batch
+     */
+    @DisplayName("Пакет операций применяется целиком")
+    @Test
+    void applyBatch_whenAllOperationsValid_shouldApplyAll() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task old = new Task("old", "Description", NEW, Duration.ofMinutes(30), start);
+        taskManager.addNewTask(old);
+        Epic epic = new Epic(100, "Epic", "Description", NEW);
+        SubTask subTask = new SubTask("Sub", "Description", DONE, Duration.ofMinutes(30), start.plusHours(1), 100);
+        Task moved = new Task(old.getId(), "moved", "Description", IN_PROGRESS, Duration.ofMinutes(30),
+                start.plusHours(2));
+
+        List<Integer> ids = taskManager.applyBatch(List.of(
+                Operation.create(epic),
+                Operation.create(subTask),
+                Operation.update(moved),
+                Operation.delete(TaskType.TASK, old.getId())));
+
+        assertEquals(List.of(100, subTask.getId(), old.getId(), old.getId()), ids);
+        assertTrue(taskManager.getAllTasks().isEmpty());
+        assertEquals(DONE, taskManager.getEpicById(100).getStatus());
+        assertEquals(List.of(subTask.getId(), 100),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+    }
+
+    @DisplayName("Новый эпик в пакете проверяется на пересечения, как в addNewEpic")
+    @Test
+    void applyBatch_whenCreatedEpicOverlaps_shouldReject() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        taskManager.addNewTask(new Task("Task", "Description", NEW, Duration.ofMinutes(30), start));
+        Epic epic = new Epic("Epic", "Description", NEW, Duration.ofMinutes(30), start.plusMinutes(10));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.addNewEpic(new Epic(epic.getName(), epic.getDescription(), NEW,
+                        epic.getDuration(), epic.getStartTime())));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.applyBatch(List.of(Operation.create(epic))));
+        assertTrue(taskManager.getAllEpics().isEmpty());
+    }
+
+    @DisplayName("Ошибка в пакете откатывает уже примененные операции")
+    @Test
+    void applyBatch_whenOperationFails_shouldRollBackAll() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Epic epic = new Epic("Epic", "Description", NEW);
+        taskManager.addNewEpic(epic);
+        SubTask subTask = new SubTask("Sub", "Description", DONE, Duration.ofMinutes(30), start, epic.getId());
+        taskManager.addNewSubTask(subTask);
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(30), start.plusHours(1));
+        taskManager.addNewTask(task);
+        taskManager.getTaskById(task.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.applyBatch(List.of(
+                Operation.delete(TaskType.EPIC, epic.getId()),
+                Operation.delete(TaskType.TASK, task.getId()),
+                Operation.create(new Task("free", "Description", NEW, Duration.ofMinutes(30), start.plusHours(5))),
+                Operation.create(new Task("clash", "Description", NEW, Duration.ofMinutes(30),
+                        start.plusHours(5).plusMinutes(10))))));
+        assertThrows(NotFoundException.class, () -> taskManager.applyBatch(List.of(
+                Operation.delete(TaskType.TASK, task.getId()),
+                Operation.delete(TaskType.TASK, task.getId()))));
+
+        assertEquals(List.of(task), taskManager.getAllTasks());
+        assertEquals(List.of(subTask), taskManager.getAllSubTasks());
+        assertEquals(List.of(subTask), taskManager.getEpicById(epic.getId()).getSubTaskList());
+        assertEquals(DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(epic.getId(), subTask.getId(), task.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertTrue(taskManager.getHistory().contains(task), "История не должна меняться при откате");
+    }
+
+    @DisplayName("Окно расписания по времени начала")
+    @Test
+    void getPrioritizedBetween_shouldReturnTasksStartingInWindow() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task before = new Task("before", "Description", NEW, Duration.ofMinutes(90), start.minusHours(1));
+        Task atFrom = new Task("atFrom", "Description", NEW, Duration.ofMinutes(10), start.plusHours(1));
+        Task inside = new Task("inside", "Description", NEW, Duration.ofMinutes(10), start.plusHours(2));
+        Task atTo = new Task("atTo", "Description", NEW, Duration.ofMinutes(10), start.plusHours(3));
+        taskManager.addNewTask(atTo);
+        taskManager.addNewTask(inside);
+        taskManager.addNewTask(before);
+        taskManager.addNewTask(atFrom);
+        taskManager.addNewEpic(new Epic("Epic", "Description", NEW));
+
+        assertEquals(List.of("atFrom", "inside"), taskManager.getPrioritizedBetween(start.plusHours(1),
+                start.plusHours(3)).stream().map(Task::getName).toList());
+        assertEquals(List.of("before", "atFrom"), taskManager.getPrioritizedBetween(null, start.plusHours(2))
+                .stream().map(Task::getName).toList());
+        assertEquals(List.of("inside", "atTo"), taskManager.getPrioritizedBetween(start.plusHours(2), null)
+                .stream().map(Task::getName).toList());
+        assertTrue(taskManager.getPrioritizedBetween(start, start).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.getPrioritizedBetween(start.plusHours(1), start));
+    }
+
+    @DisplayName("Поиск свободного промежутка и автопланирование")
+    @Test
+    void findFreeSlot_shouldReturnFirstFittingGap() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        taskManager.addNewTask(new Task("long", "Description", NEW, Duration.ofHours(3), start.minusHours(1)));
+        taskManager.addNewTask(new Task("a", "Description", NEW, Duration.ofMinutes(30), start.plusMinutes(150)));
+        taskManager.addNewTask(new Task("b", "Description", NEW, Duration.ofHours(1), start.plusMinutes(190)));
+
+        assertEquals(start.plusHours(2), taskManager.findFreeSlot(Duration.ofMinutes(30), start));
+        assertEquals(start.plusMinutes(250), taskManager.findFreeSlot(Duration.ofMinutes(31), start));
+        assertEquals(start.plusHours(3), taskManager.findFreeSlot(Duration.ofMinutes(10), start.plusHours(3)));
+        assertEquals(start.plusDays(1), taskManager.findFreeSlot(Duration.ofHours(1), start.plusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.findFreeSlot(Duration.ofMinutes(-1), start));
+
+        Task auto = new Task("auto", "Description", NEW, Duration.ofMinutes(20), null);
+        taskManager.scheduleNewTask(auto, start);
+        assertEquals(start.plusHours(2), taskManager.getTaskById(auto.getId()).getStartTime());
+        assertEquals(start.plusMinutes(250), taskManager.findFreeSlot(Duration.ofMinutes(30), start));
+
+        Epic epic = new Epic("Epic", "Description", NEW);
+        taskManager.addNewEpic(epic);
+        SubTask subTask = new SubTask("sub", "Description", NEW, Duration.ofMinutes(15), null, epic.getId());
+        taskManager.scheduleNewSubTask(subTask, start);
+        assertEquals(start.plusMinutes(250), taskManager.getSubTaskById(subTask.getId()).getStartTime());
+        assertEquals(start.plusMinutes(250), taskManager.getEpicById(epic.getId()).getStartTime());
+        assertThrows(NotFoundException.class, () -> taskManager.scheduleNewSubTask(
+                new SubTask("orphan", "Description", NEW, Duration.ofMinutes(15), null, 999), start));
+    }
+
+    @DisplayName("Полнотекстовый поиск по словам и префиксам")
+    @Test
+    void search_shouldRankByWeightAndFollowMutations() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task server = new Task("Починить сервер", "Сервер падает по ночам", NEW, Duration.ofMinutes(10), start);
+        Task milk = new Task("Купить молоко", "Для сервера?", NEW, Duration.ofMinutes(10), start.plusHours(1));
+        Epic release = new Epic("Релиз", "Подготовить сервер", NEW);
+        taskManager.addNewTask(server);
+        taskManager.addNewTask(milk);
+        taskManager.addNewEpic(release);
+
+        assertEquals(List.of(server.getId(), release.getId(), milk.getId()),
+                taskManager.search("сервер", 10).stream().map(Task::getId).toList());
+        assertEquals(List.of(server.getId()), taskManager.search("ноч сервер", 10).stream().map(Task::getId).toList());
+        assertEquals(List.of(server.getId()), taskManager.search("СЕРВ", 1).stream().map(Task::getId).toList());
+        assertTrue(taskManager.search("сервер кофе", 10).isEmpty());
+        assertTrue(taskManager.search(" ,. ", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.search("сервер", 0));
+
+        Task renamed = new Task(server.getId(), "Обновить", "ничего", NEW, Duration.ofMinutes(10), start);
+        taskManager.updateTask(renamed);
+        assertEquals(List.of(release.getId(), milk.getId()),
+                taskManager.search("сервер", 10).stream().map(Task::getId).toList());
+        assertEquals(List.of(renamed), taskManager.search("обнов", 10));
+
+        taskManager.deleteEpicById(release.getId());
+        assertEquals(List.of(milk.getId()), taskManager.search("сервер", 10).stream().map(Task::getId).toList());
+        taskManager.deleteAllTasks();
+        assertTrue(taskManager.search("сервер", 10).isEmpty());
+    }
+
+    @DisplayName("События изменений, в пакете - только после успеха")
+    @Test
+    void subscribe_shouldReceiveMutationEvents() {
+        List<TaskEvent> events = new ArrayList<>();
+        Consumer<TaskEvent> listener = events::add;
+        taskManager.subscribe(listener);
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(10), start);
+        taskManager.addNewTask(task);
+        taskManager.updateTask(new Task(task.getId(), "Renamed", "Description", IN_PROGRESS,
+                Duration.ofMinutes(10), start));
+        taskManager.deleteTaskById(task.getId());
+
+        assertEquals(List.of(TaskEvent.Kind.CREATED, TaskEvent.Kind.UPDATED, TaskEvent.Kind.DELETED),
+                events.stream().map(TaskEvent::getKind).toList());
+        assertEquals("Renamed", events.get(1).getTask().getName());
+        assertEquals(IN_PROGRESS, events.get(1).getTask().getStatus());
+        assertNull(events.get(2).getTask());
+        assertEquals(task.getId(), events.get(2).getId());
+        assertTrue(events.get(0).getSequence() < events.get(1).getSequence());
+
+        events.clear();
+        assertThrows(IllegalArgumentException.class, () -> taskManager.applyBatch(List.of(
+                Operation.create(new Task("A", "Description", NEW, Duration.ofMinutes(10), start)),
+                Operation.create(new Task("B", "Description", NEW, Duration.ofMinutes(10), start)))));
+        assertTrue(events.isEmpty(), "Откаченный пакет не должен рассылать события");
+
+        taskManager.applyBatch(List.of(
+                Operation.create(new Task("A", "Description", NEW, Duration.ofMinutes(10), start))));
+        taskManager.deleteAllTasks();
+        assertEquals(List.of(TaskEvent.Kind.CREATED, TaskEvent.Kind.DELETED),
+                events.stream().map(TaskEvent::getKind).toList());
+
+        events.clear();
+        taskManager.unsubscribe(listener);
+        taskManager.addNewTask(new Task("C", "Description", NEW, Duration.ofMinutes(10), start));
+        assertTrue(events.isEmpty());
+    }
+
+    @DisplayName("Отклоненное обновление не рассылается, эпик подзадачи - одно событие")
+    @Test
+    void subscribe_shouldPublishOnlyAcceptedUpdatesOncePerEpic() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(10), start);
+        taskManager.addNewTask(task);
+        taskManager.addNewTask(new Task("Other", "Description", NEW, Duration.ofMinutes(10), start.plusHours(1)));
+        Epic epic = new Epic("Epic", "Description", NEW);
+        taskManager.addNewEpic(epic);
+        SubTask subTask = new SubTask("SubTask", "Description", NEW, epic.getId());
+        taskManager.addNewSubTask(subTask);
+        List<TaskEvent> events = new ArrayList<>();
+        taskManager.subscribe(events::add);
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateTask(new Task(task.getId(), "Moved",
+                "Description", NEW, Duration.ofMinutes(10), start.plusHours(1))));
+        assertTrue(events.isEmpty(), "Отклоненное обновление не должно рассылаться");
+        assertEquals("Task", taskManager.getTaskById(task.getId()).getName());
+
+        taskManager.updateSubTask(new SubTask(subTask.getId(), "SubTask", "Description", DONE, epic.getId()));
+        assertEquals(1, events.stream().filter(event -> event.getType() == TaskType.EPIC).count());
+        assertEquals(DONE, events.stream().filter(event -> event.getType() == TaskType.EPIC)
+                .findFirst().orElseThrow().getTask().getStatus());
+        assertEquals(1, events.stream().filter(event -> event.getType() == TaskType.SUBTASK).count());
+    }
+
+    @DisplayName("Эпик попадает в события, только если изменились его статус или время")
+    @Test
+    void subscribe_whenEpicAggregateUnchanged_shouldNotPublishEpic() {
+        Epic untouched = new Epic("Untouched", "Description", NEW);
+        taskManager.addNewEpic(untouched);
+        Epic epic = new Epic("Epic", "Description", NEW);
+        taskManager.addNewEpic(epic);
+        taskManager.addNewSubTask(new SubTask("First", "Description", NEW, epic.getId()));
+        taskManager.getEpicById(epic.getId());
+        List<TaskEvent> events = new ArrayList<>();
+        taskManager.subscribe(events::add);
+
+        taskManager.addNewSubTask(new SubTask("Second", "Description", NEW, epic.getId()));
+        taskManager.updateEpicStatus(untouched);
+        assertEquals(List.of(TaskType.SUBTASK), events.stream().map(TaskEvent::getType).toList());
+        assertEquals(2, taskManager.getEpicById(epic.getId()).getSubTaskList().size());
+
+        events.clear();
+        taskManager.deleteAllSubTasks();
+        assertTrue(events.stream().noneMatch(event -> event.getType() == TaskType.EPIC));
+    }
+
+    @DisplayName("Изменение записи истории не портит следующие get*ById")
+    @Test
+    void getHistory_whenEntryMutated_shouldNotAffectStoredTask() {
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(30), LocalDateTime.of(2030, 1, 1, 10, 0));
+        taskManager.addNewTask(task);
+        taskManager.getTaskById(task.getId());
+
+        Task entry = taskManager.getHistory().get(0);
+        entry.setName("Changed");
+        entry.setStatus(DONE);
+
+        Task stored = taskManager.getTaskById(task.getId());
+        assertEquals("Task", stored.getName());
+        assertEquals(NEW, stored.getStatus());
+        assertEquals("Task", taskManager.getHistory().get(0).getName());
+    }
+
+    @DisplayName("Отклоненное добавление не тратит id и не меняет переданный объект")
+    @Test
+    void addNewTask_whenOverlapping_shouldNotConsumeId() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        Task first = new Task("First", "Description", NEW, Duration.ofMinutes(30), start);
+        taskManager.addNewTask(first);
+        Task rejected = new Task("Rejected", "Description", NEW, Duration.ofMinutes(30), start.plusMinutes(10));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addNewTask(rejected));
+        Epic epic = new Epic("Epic", "Description", NEW);
+        taskManager.addNewEpic(epic);
+        SubTask rejectedSubTask = new SubTask("Rejected", "Description", NEW, Duration.ofMinutes(30),
+                start.plusMinutes(20), epic.getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addNewSubTask(rejectedSubTask));
+
+        assertNull(rejected.getId());
+        assertNull(rejectedSubTask.getId());
+        assertEquals(first.getId() + 1, epic.getId());
+        Task next = new Task("Next", "Description", NEW, Duration.ofMinutes(30), start.plusHours(1));
+        taskManager.addNewTask(next);
+        assertEquals(epic.getId() + 1, next.getId());
+    }
+
+    @DisplayName("Задача без startTime не добавляется и не получает id")
+    @Test
+    void addNewTask_whenStartTimeIsNull_shouldDoNothing() {
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(30), null);
+        taskManager.addNewTask(task);
+
+        assertNull(task.getId());
+        assertTrue(taskManager.getAllTasks().isEmpty());
+    }
+
+    @DisplayName("Обновление задачи без id")
+    @Test
+    void updateTask_whenIdIsNull_shouldThrowIllegalArgument() {
+        Task task = new Task("Task", "Description", NEW, Duration.ofMinutes(30), LocalDateTime.now());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateTask(task));
+    }
+
+    @DisplayName("Обновление эпика без id")
+    @Test
+    void updateEpic_whenIdIsNull_shouldThrowNotFound() {
+        Epic epic = new Epic("Epic", "Description", NEW);
+        assertThrows(NotFoundException.class, () -> taskManager.updateEpic(epic));
+    }
+
+    @DisplayName("Подзадача без epicId")
+    @Test
+    void addNewSubTask_whenEpicIdIsNull_shouldThrowNotFound() {
+        SubTask subTask = new SubTask("SubTask", "Description", NEW, Duration.ofMinutes(30), LocalDateTime.now(), null);
+        assertThrows(NotFoundException.class, () -> taskManager.addNewSubTask(subTask));
+        assertTrue(taskManager.getAllSubTasks().isEmpty());
+    }
+
     private void initializeAndAddTasks() {
         Task task = new Task(1, "Task", "Description", NEW, Duration.ofMinutes(30), LocalDateTime.now());
         Task task2 = new Task(2, "Task", "Description", NEW, Duration.ofMinutes(30), LocalDateTime.now().plusHours(1));